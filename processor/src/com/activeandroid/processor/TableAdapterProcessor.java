@@ -0,0 +1,589 @@
+package com.activeandroid.processor;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a <code>TableAdapter</code> for every model that declares <code>@Table</code>
+ * or <code>@Column</code>, so that ActiveAndroid can read and write its columns without
+ * reflection. Models whose columns or constructors are not accessible from their
+ * package are skipped and keep using reflection.
+ */
+@SupportedAnnotationTypes({
+		TableAdapterProcessor.TABLE_ANNOTATION,
+		TableAdapterProcessor.COLUMN_ANNOTATION
+})
+public final class TableAdapterProcessor extends AbstractProcessor {
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE CONSTANTS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	static final String TABLE_ANNOTATION = "com.activeandroid.annotation.Table";
+	static final String COLUMN_ANNOTATION = "com.activeandroid.annotation.Column";
+
+	private static final String MODEL_CLASS = "com.activeandroid.Model";
+	private static final String CACHE_CLASS = "com.activeandroid.Cache";
+	private static final String LAZY_CLASS = "com.activeandroid.Lazy";
+	private static final String ADAPTER_CLASS = "com.activeandroid.TableAdapter";
+	private static final String ADAPTER_SUFFIX = "$$TableAdapter";
+
+	private static final String ID_FIELD = "mId";
+	private static final String DEFAULT_ID_NAME = "_id";
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE MEMBERS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private final Set<String> mGenerated = new HashSet<String>();
+
+	private Elements mElements;
+	private Types mTypes;
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// OVERRIDEN METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		mElements = processingEnv.getElementUtils();
+		mTypes = processingEnv.getTypeUtils();
+
+		final TypeElement modelElement = mElements.getTypeElement(MODEL_CLASS);
+		if (modelElement == null) {
+			return false;
+		}
+
+		final Set<TypeElement> models = new LinkedHashSet<TypeElement>();
+		for (TypeElement annotation : annotations) {
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				if (element.getKind() == ElementKind.CLASS) {
+					models.add((TypeElement) element);
+				}
+				else if (element.getKind() == ElementKind.FIELD) {
+					models.add((TypeElement) element.getEnclosingElement());
+				}
+			}
+		}
+
+		for (TypeElement model : models) {
+			if (isModel(model.asType()) && mGenerated.add(model.getQualifiedName().toString())) {
+				generate(model);
+			}
+		}
+
+		return false;
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private void generate(TypeElement model) {
+		final String constructor = getConstructor(model);
+		final List<VariableElement> fields = getColumnFields(model);
+
+		if (constructor == null || fields == null) {
+			note(model, "Not generating a TableAdapter for " + model + ", it will be persisted through reflection.");
+			return;
+		}
+
+		final String packageName = getPackage(model).getQualifiedName().toString();
+		final String modelName = model.getQualifiedName().toString();
+		final String binaryName = mElements.getBinaryName(model).toString();
+		final String adapterName = binaryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1)
+				+ ADAPTER_SUFFIX;
+
+		final StringBuilder source = new StringBuilder();
+		source.append("// Generated by ActiveAndroid. Do not modify.\n");
+		if (!packageName.isEmpty()) {
+			source.append("package ").append(packageName).append(";\n\n");
+		}
+
+		source.append("public final class ").append(adapterName)
+				.append(" extends ").append(ADAPTER_CLASS).append("<").append(modelName).append("> {\n");
+
+		// Field names
+		source.append("\tprivate static final String[] FIELD_NAMES = {\n");
+		source.append("\t\t\"").append(ID_FIELD).append("\",\n");
+		for (VariableElement field : fields) {
+			source.append("\t\t\"").append(field.getSimpleName()).append("\",\n");
+		}
+		source.append("\t};\n\n");
+
+		source.append("\t@Override\n");
+		source.append("\tpublic String[] getFieldNames() {\n");
+		source.append("\t\treturn FIELD_NAMES;\n");
+		source.append("\t}\n\n");
+
+		// Getters
+		source.append("\t@Override\n");
+		source.append("\tpublic Object getValue(").append(modelName).append(" model, int fieldIndex) {\n");
+		source.append("\t\tswitch (fieldIndex) {\n");
+		source.append("\t\tcase 0: return model.getId();\n");
+		for (int i = 0; i < fields.size(); i++) {
+			source.append("\t\tcase ").append(i + 1).append(": return model.")
+					.append(fields.get(i).getSimpleName()).append(";\n");
+		}
+		source.append("\t\tdefault: throw new IllegalArgumentException(\"Unknown field index \" + fieldIndex);\n");
+		source.append("\t\t}\n");
+		source.append("\t}\n\n");
+
+		// Setters
+		source.append("\t@Override\n");
+		if (hasGenericField(fields)) {
+			source.append("\t@SuppressWarnings(\"unchecked\")\n");
+		}
+		source.append("\tpublic void setValue(").append(modelName).append(" model, int fieldIndex, Object value) {\n");
+		source.append("\t\tswitch (fieldIndex) {\n");
+		source.append("\t\tcase 0: model.setId((java.lang.Long) value); break;\n");
+		for (int i = 0; i < fields.size(); i++) {
+			final VariableElement field = fields.get(i);
+			source.append("\t\tcase ").append(i + 1).append(": model.").append(field.getSimpleName())
+					.append(" = (").append(getCastType(field.asType())).append(") value; break;\n");
+		}
+		source.append("\t\tdefault: throw new IllegalArgumentException(\"Unknown field index \" + fieldIndex);\n");
+		source.append("\t\t}\n");
+		source.append("\t}\n\n");
+
+		// Instantiation
+		source.append("\t@Override\n");
+		source.append("\tpublic ").append(modelName).append(" newInstance(").append(CACHE_CLASS).append(" cache) {\n");
+		source.append("\t\treturn new ").append(modelName).append("(").append(constructor).append(");\n");
+		source.append("\t}\n\n");
+
+		// Table definition
+		final String definition = createTableDefinition(model, fields);
+		source.append("\t@Override\n");
+		source.append("\tpublic String createTableDefinition() {\n");
+		if (definition != null) {
+			source.append("\t\treturn \"").append(escape(definition)).append("\";\n");
+		}
+		else {
+			source.append("\t\treturn null;\n");
+		}
+		source.append("\t}\n");
+
+		source.append("}\n");
+
+		try {
+			final String qualifiedAdapterName = packageName.isEmpty() ? adapterName : packageName + "." + adapterName;
+			final JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedAdapterName, model);
+			final Writer writer = file.openWriter();
+			try {
+				writer.write(source.toString());
+			}
+			finally {
+				writer.close();
+			}
+		}
+		catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"Couldn't write TableAdapter: " + e.getMessage(), model);
+		}
+	}
+
+	/**
+	 * @return The arguments of the constructor the adapter can call, or null if there is none.
+	 */
+	private String getConstructor(TypeElement model) {
+		if (model.getModifiers().contains(Modifier.ABSTRACT) || !isAccessible(model)) {
+			return null;
+		}
+
+		String arguments = null;
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(model.getEnclosedElements())) {
+			if (constructor.getModifiers().contains(Modifier.PRIVATE)) {
+				continue;
+			}
+
+			final List<? extends VariableElement> parameters = constructor.getParameters();
+			if (parameters.size() == 1 && parameters.get(0).asType().toString().equals(CACHE_CLASS)) {
+				return "cache";
+			}
+			else if (parameters.isEmpty()) {
+				arguments = "";
+			}
+		}
+
+		return arguments;
+	}
+
+	/**
+	 * @return The column fields of the model and its super classes, or null if any of them
+	 * can't be accessed from the package of the model.
+	 */
+	private List<VariableElement> getColumnFields(TypeElement model) {
+		final PackageElement modelPackage = getPackage(model);
+		final List<VariableElement> fields = new ArrayList<VariableElement>();
+		final Set<String> names = new HashSet<String>();
+
+		TypeElement type = model;
+		while (type != null && !type.getQualifiedName().contentEquals(MODEL_CLASS)) {
+			for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+				if (getAnnotation(field, COLUMN_ANNOTATION) == null) {
+					continue;
+				}
+
+				final Set<Modifier> modifiers = field.getModifiers();
+				if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL)
+						|| modifiers.contains(Modifier.STATIC)) {
+					return null;
+				}
+				if (!modifiers.contains(Modifier.PUBLIC) && !getPackage(type).equals(modelPackage)) {
+					return null;
+				}
+				if (!names.add(field.getSimpleName().toString())) {
+					// Shadowed column fields can't be told apart by name.
+					return null;
+				}
+
+				fields.add(field);
+			}
+
+			final TypeMirror superclass = type.getSuperclass();
+			type = superclass.getKind() == TypeKind.DECLARED
+					? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+		}
+
+		return fields;
+	}
+
+	/**
+	 * Mirrors SQLiteUtils.createTableDefinition() for models whose columns all have a
+	 * native mapping.
+	 *
+	 * @return The definition, or null if it depends on type serializers.
+	 */
+	private String createTableDefinition(TypeElement model, List<VariableElement> fields) {
+		final String idName = getIdName(model);
+		final List<String> definitions = new ArrayList<String>();
+		final Map<String, List<String>> uniqueGroups = new LinkedHashMap<String, List<String>>();
+		final Map<String, String> uniqueConflicts = new LinkedHashMap<String, String>();
+
+		definitions.add(idName + " INTEGER PRIMARY KEY AUTOINCREMENT");
+
+		for (VariableElement field : fields) {
+			final AnnotationMirror column = getAnnotation(field, COLUMN_ANNOTATION);
+			final String name = getColumnName(field, column);
+			final TypeMirror type = field.asType();
+			final String sqliteType = getSQLiteType(type);
+
+			if (sqliteType == null) {
+				return null;
+			}
+
+			final StringBuilder definition = new StringBuilder();
+			definition.append(name).append(" ").append(sqliteType);
+
+			if (name.equals(idName)) {
+				definition.append(" PRIMARY KEY AUTOINCREMENT");
+			}
+			else {
+				final int length = (Integer) getValue(column, "length");
+				if (length > -1) {
+					definition.append("(").append(length).append(")");
+				}
+
+				if ((Boolean) getValue(column, "notNull")) {
+					definition.append(" NOT NULL ON CONFLICT ").append(getValue(column, "onNullConflict"));
+				}
+
+				if ((Boolean) getValue(column, "unique")) {
+					definition.append(" UNIQUE ON CONFLICT ").append(getValue(column, "onUniqueConflict"));
+				}
+			}
+
+			final TypeElement entity = getReferencedType(type);
+			if (entity != null) {
+				definition.append(" REFERENCES ").append(getTableName(entity));
+				definition.append("(").append(idName).append(")");
+				definition.append(" ON DELETE ").append(getValue(column, "onDelete").toString().replace("_", " "));
+				definition.append(" ON UPDATE ").append(getValue(column, "onUpdate").toString().replace("_", " "));
+			}
+
+			definitions.add(definition.toString());
+
+			final List<?> groups = (List<?>) getValue(column, "uniqueGroups");
+			final List<?> conflicts = (List<?>) getValue(column, "onUniqueConflicts");
+			if (groups.size() == conflicts.size()) {
+				for (int i = 0; i < groups.size(); i++) {
+					final String group = ((AnnotationValue) groups.get(i)).getValue().toString();
+					if (group.isEmpty()) {
+						continue;
+					}
+
+					List<String> members = uniqueGroups.get(group);
+					if (members == null) {
+						members = new ArrayList<String>();
+						uniqueGroups.put(group, members);
+					}
+					members.add(name);
+					uniqueConflicts.put(group, getConstantName((AnnotationValue) conflicts.get(i)));
+				}
+			}
+		}
+
+		for (Map.Entry<String, List<String>> group : uniqueGroups.entrySet()) {
+			definitions.add("UNIQUE (" + join(group.getValue()) + ") ON CONFLICT "
+					+ uniqueConflicts.get(group.getKey()));
+		}
+
+		return "CREATE TABLE IF NOT EXISTS " + getTableName(model) + " (" + join(definitions) + ");";
+	}
+
+	private String getSQLiteType(TypeMirror type) {
+		switch (type.getKind()) {
+		case BYTE:
+		case SHORT:
+		case INT:
+		case LONG:
+		case BOOLEAN:
+			return "INTEGER";
+		case FLOAT:
+		case DOUBLE:
+			return "REAL";
+		case CHAR:
+			return "TEXT";
+		case ARRAY:
+			final String array = type.toString();
+			return array.equals("byte[]") || array.equals("java.lang.Byte[]") ? "BLOB" : null;
+		case DECLARED:
+			final String name = mTypes.erasure(type).toString();
+			if (name.equals("java.lang.Byte") || name.equals("java.lang.Short") || name.equals("java.lang.Integer")
+					|| name.equals("java.lang.Long") || name.equals("java.lang.Boolean")) {
+				return "INTEGER";
+			}
+			else if (name.equals("java.lang.Float") || name.equals("java.lang.Double")) {
+				return "REAL";
+			}
+			else if (name.equals("java.lang.Character") || name.equals("java.lang.String")) {
+				return "TEXT";
+			}
+			else if (getReferencedType(type) != null) {
+				return "INTEGER";
+			}
+			else if (mTypes.asElement(type).getKind() == ElementKind.ENUM) {
+				return "TEXT";
+			}
+			return null;
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * @return The model referenced by a Model or Lazy&lt;Model&gt; column, or null.
+	 */
+	private TypeElement getReferencedType(TypeMirror type) {
+		if (isModel(type)) {
+			return (TypeElement) mTypes.asElement(type);
+		}
+
+		if (type.getKind() == TypeKind.DECLARED && mTypes.erasure(type).toString().equals(LAZY_CLASS)) {
+			final List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+			if (arguments.size() == 1 && isModel(arguments.get(0))) {
+				return (TypeElement) mTypes.asElement(arguments.get(0));
+			}
+		}
+
+		return null;
+	}
+
+	private String getCastType(TypeMirror type) {
+		if (type.getKind().isPrimitive()) {
+			return mTypes.boxedClass((PrimitiveType) type).getQualifiedName().toString();
+		}
+		if (isGeneric(type)) {
+			// Casting to the raw type would leave an unchecked assignment in the model's build.
+			return type.toString();
+		}
+
+		return mTypes.erasure(type).toString();
+	}
+
+	private boolean hasGenericField(List<VariableElement> fields) {
+		for (VariableElement field : fields) {
+			if (isGeneric(field.asType())) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static boolean isGeneric(TypeMirror type) {
+		return type.getKind() == TypeKind.TYPEVAR
+				|| (type.getKind() == TypeKind.DECLARED && !((DeclaredType) type).getTypeArguments().isEmpty());
+	}
+
+	private boolean isModel(TypeMirror type) {
+		final TypeElement modelElement = mElements.getTypeElement(MODEL_CLASS);
+		if (type.getKind() != TypeKind.DECLARED
+				|| !mTypes.isSubtype(mTypes.erasure(type), mTypes.erasure(modelElement.asType()))) {
+			return false;
+		}
+
+		return !mTypes.asElement(type).getModifiers().contains(Modifier.ABSTRACT);
+	}
+
+	private boolean isAccessible(TypeElement type) {
+		Element element = type;
+		while (element.getKind().isClass() || element.getKind().isInterface()) {
+			final TypeElement typeElement = (TypeElement) element;
+			if (typeElement.getModifiers().contains(Modifier.PRIVATE)) {
+				return false;
+			}
+			if (typeElement.getNestingKind() == NestingKind.MEMBER
+					&& !typeElement.getModifiers().contains(Modifier.STATIC)) {
+				return false;
+			}
+			if (typeElement.getNestingKind() == NestingKind.LOCAL
+					|| typeElement.getNestingKind() == NestingKind.ANONYMOUS) {
+				return false;
+			}
+			element = element.getEnclosingElement();
+		}
+
+		return true;
+	}
+
+	private String getTableName(TypeElement type) {
+		final AnnotationMirror table = getAnnotation(type, TABLE_ANNOTATION);
+		if (table != null) {
+			return getValue(table, "name").toString();
+		}
+
+		return type.getSimpleName().toString();
+	}
+
+	private String getIdName(TypeElement type) {
+		final AnnotationMirror table = getAnnotation(type, TABLE_ANNOTATION);
+		if (table != null) {
+			return getValue(table, "id").toString();
+		}
+
+		return DEFAULT_ID_NAME;
+	}
+
+	private String getColumnName(VariableElement field, AnnotationMirror column) {
+		final String name = getValue(column, "name").toString();
+		if (name.isEmpty()) {
+			return field.getSimpleName().toString();
+		}
+
+		return name;
+	}
+
+	private PackageElement getPackage(Element element) {
+		return mElements.getPackageOf(element);
+	}
+
+	private AnnotationMirror getAnnotation(Element element, String annotationName) {
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			final TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+			if (annotationType.getQualifiedName().contentEquals(annotationName)) {
+				return annotation;
+			}
+		}
+
+		return null;
+	}
+
+	private Object getValue(AnnotationMirror annotation, String name) {
+		final Map<? extends ExecutableElement, ? extends AnnotationValue> values =
+				mElements.getElementValuesWithDefaults(annotation);
+
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+			if (entry.getKey().getSimpleName().contentEquals(name)) {
+				final Object value = entry.getValue().getValue();
+				if (value instanceof VariableElement) {
+					return getConstantName(entry.getValue());
+				}
+				return value;
+			}
+		}
+
+		return null;
+	}
+
+	private String getConstantName(AnnotationValue value) {
+		final Object constant = value.getValue();
+		if (constant instanceof VariableElement) {
+			return ((VariableElement) constant).getSimpleName().toString();
+		}
+
+		return constant.toString();
+	}
+
+	private void note(Element element, String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, message, element);
+	}
+
+	private static String join(List<String> values) {
+		final StringBuilder builder = new StringBuilder();
+		for (String value : values) {
+			if (builder.length() > 0) {
+				builder.append(", ");
+			}
+			builder.append(value);
+		}
+
+		return builder.toString();
+	}
+
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+}
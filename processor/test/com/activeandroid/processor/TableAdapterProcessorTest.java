@@ -0,0 +1,272 @@
+package com.activeandroid.processor;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Compiles sample models with the processor against minimal stand-ins of the library
+ * classes, and checks the generated adapters.
+ */
+public class TableAdapterProcessorTest {
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE CONSTANTS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private static final String[][] LIBRARY = {
+		{ "com.activeandroid.Cache", "package com.activeandroid; public class Cache {}" },
+		{ "com.activeandroid.Model", "package com.activeandroid;"
+				+ "public abstract class Model {"
+				+ "  private Long mId;"
+				+ "  public Model() {}"
+				+ "  public final Long getId() { return mId; }"
+				+ "  public final void setId(Long id) { mId = id; }"
+				+ "}" },
+		{ "com.activeandroid.Lazy", "package com.activeandroid;"
+				+ "public final class Lazy<T extends Model> {"
+				+ "  private final Long mId;"
+				+ "  public Lazy(Long id) { mId = id; }"
+				+ "  public Long getId() { return mId; }"
+				+ "}" },
+		{ "com.activeandroid.TableAdapter", "package com.activeandroid;"
+				+ "public abstract class TableAdapter<T extends Model> {"
+				+ "  public abstract String[] getFieldNames();"
+				+ "  public abstract Object getValue(T model, int fieldIndex);"
+				+ "  public abstract void setValue(T model, int fieldIndex, Object value);"
+				+ "  public abstract T newInstance(Cache cache);"
+				+ "  public abstract String createTableDefinition();"
+				+ "}" },
+		{ "com.activeandroid.annotation.Table", "package com.activeandroid.annotation;"
+				+ "public @interface Table { String name(); String id() default \"_id\"; }" },
+		{ "com.activeandroid.annotation.Column", "package com.activeandroid.annotation;"
+				+ "public @interface Column {"
+				+ "  enum ConflictAction { ROLLBACK, ABORT, FAIL, IGNORE, REPLACE }"
+				+ "  enum ForeignKeyAction { SET_NULL, SET_DEFAULT, CASCADE, RESTRICT, NO_ACTION }"
+				+ "  String name() default \"\";"
+				+ "  int length() default -1;"
+				+ "  boolean notNull() default false;"
+				+ "  ConflictAction onNullConflict() default ConflictAction.FAIL;"
+				+ "  ForeignKeyAction onDelete() default ForeignKeyAction.NO_ACTION;"
+				+ "  ForeignKeyAction onUpdate() default ForeignKeyAction.NO_ACTION;"
+				+ "  boolean unique() default false;"
+				+ "  ConflictAction onUniqueConflict() default ConflictAction.FAIL;"
+				+ "  String[] uniqueGroups() default {};"
+				+ "  ConflictAction[] onUniqueConflicts() default {};"
+				+ "}" },
+	};
+
+	private static final String OWNER = "package sample;"
+			+ "import com.activeandroid.Model;"
+			+ "import com.activeandroid.annotation.Table;"
+			+ "@Table(name = \"Owners\") public class Owner extends Model {}";
+
+	private static final String ITEM = "package sample;"
+			+ "import com.activeandroid.Lazy;"
+			+ "import com.activeandroid.Model;"
+			+ "import com.activeandroid.annotation.Column;"
+			+ "import com.activeandroid.annotation.Table;"
+			+ "@Table(name = \"Items\") public class Item extends Model {"
+			+ "  @Column public int count;"
+			+ "  @Column(name = \"Label\", notNull = true) public String label;"
+			+ "  @Column public Owner creator;"
+			+ "  @Column public Lazy<Owner> owner;"
+			+ "}";
+
+	private static final String HIDDEN = "package sample;"
+			+ "import com.activeandroid.Model;"
+			+ "import com.activeandroid.annotation.Column;"
+			+ "import com.activeandroid.annotation.Table;"
+			+ "@Table(name = \"Hidden\") public class Hidden extends Model {"
+			+ "  @Column private int count;"
+			+ "}";
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE MEMBERS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private File mOutput;
+	private DiagnosticCollector<JavaFileObject> mDiagnostics;
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// SETUP
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	@Before
+	public void setUp() throws IOException {
+		mOutput = File.createTempFile("processor", "");
+		assertTrue(mOutput.delete() && mOutput.mkdir());
+		mDiagnostics = new DiagnosticCollector<JavaFileObject>();
+
+		final List<JavaFileObject> sources = new ArrayList<JavaFileObject>();
+		for (String[] source : LIBRARY) {
+			sources.add(new Source(source[0], source[1]));
+		}
+		sources.add(new Source("sample.Owner", OWNER));
+		sources.add(new Source("sample.Item", ITEM));
+		sources.add(new Source("sample.Hidden", HIDDEN));
+
+		final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		final StandardJavaFileManager fileManager = compiler.getStandardFileManager(mDiagnostics, null, null);
+		final List<String> options = Arrays.asList("-d", mOutput.getPath(), "-s", mOutput.getPath(),
+				"-Xlint:unchecked,rawtypes,deprecation");
+
+		final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, mDiagnostics, options, null, sources);
+		task.setProcessors(Collections.singletonList(new TableAdapterProcessor()));
+
+		assertTrue(mDiagnostics.getDiagnostics().toString(), task.call());
+		fileManager.close();
+	}
+
+	@After
+	public void tearDown() {
+		delete(mOutput);
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// TESTS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	@Test
+	public void testGeneratedAdapterCompilesWithoutWarnings() {
+		for (Diagnostic<? extends JavaFileObject> diagnostic : mDiagnostics.getDiagnostics()) {
+			assertFalse(diagnostic.toString(), diagnostic.getKind() == Diagnostic.Kind.WARNING
+					|| diagnostic.getKind() == Diagnostic.Kind.MANDATORY_WARNING);
+		}
+
+		assertTrue(new File(mOutput, "sample/Item$$TableAdapter.class").exists());
+	}
+
+	@Test
+	public void testInaccessibleModelIsSkipped() {
+		assertFalse(new File(mOutput, "sample/Hidden$$TableAdapter.class").exists());
+	}
+
+	@Test
+	public void testAdapterReadsAndWritesFields() throws Exception {
+		final ClassLoader loader = new URLClassLoader(new URL[] { mOutput.toURI().toURL() });
+		final Class<?> itemClass = loader.loadClass("sample.Item");
+		final Class<?> lazyClass = loader.loadClass("com.activeandroid.Lazy");
+		final Object adapterObject = loader.loadClass("sample.Item$$TableAdapter").getDeclaredConstructor().newInstance();
+
+		final java.lang.reflect.Method newInstance = adapterObject.getClass().getMethod("newInstance",
+				loader.loadClass("com.activeandroid.Cache"));
+		final Object item = newInstance.invoke(adapterObject, (Object) null);
+		assertNotNull(item);
+
+		final java.lang.reflect.Method getFieldNames = adapterObject.getClass().getMethod("getFieldNames");
+		assertEquals(Arrays.asList("mId", "count", "label", "creator", "owner"),
+				Arrays.asList((String[]) getFieldNames.invoke(adapterObject)));
+
+		final Object owner = lazyClass.getConstructor(Long.class).newInstance(7L);
+		final Object[] values = { 3L, 5, "five", null, owner };
+
+		final java.lang.reflect.Method setValue = findMethod(adapterObject.getClass(), "setValue");
+		final java.lang.reflect.Method getValue = findMethod(adapterObject.getClass(), "getValue");
+		for (int i = 0; i < values.length; i++) {
+			setValue.invoke(adapterObject, item, i, values[i]);
+		}
+		for (int i = 0; i < values.length; i++) {
+			assertEquals(values[i], getValue.invoke(adapterObject, item, i));
+		}
+
+		// The same values as reflection sees them.
+		assertEquals(5, itemClass.getField("count").get(item));
+		assertEquals("five", itemClass.getField("label").get(item));
+		assertNull(itemClass.getField("creator").get(item));
+		assertEquals(owner, itemClass.getField("owner").get(item));
+	}
+
+	@Test
+	public void testTableDefinition() throws Exception {
+		final ClassLoader loader = new URLClassLoader(new URL[] { mOutput.toURI().toURL() });
+		final Object adapter = loader.loadClass("sample.Item$$TableAdapter").getDeclaredConstructor().newInstance();
+
+		assertEquals("CREATE TABLE IF NOT EXISTS Items (_id INTEGER PRIMARY KEY AUTOINCREMENT, count INTEGER, "
+				+ "Label TEXT NOT NULL ON CONFLICT FAIL, "
+				+ "creator INTEGER REFERENCES Owners(_id) ON DELETE NO ACTION ON UPDATE NO ACTION, "
+				+ "owner INTEGER REFERENCES Owners(_id) ON DELETE NO ACTION ON UPDATE NO ACTION);",
+				adapter.getClass().getMethod("createTableDefinition").invoke(adapter));
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private static java.lang.reflect.Method findMethod(Class<?> type, String name) {
+		for (java.lang.reflect.Method method : type.getMethods()) {
+			if (method.getName().equals(name) && !method.isBridge()) {
+				return method;
+			}
+		}
+
+		throw new AssertionError("No method " + name + " in " + type);
+	}
+
+	private static void delete(File file) {
+		final File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// INNER CLASSES
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private static final class Source extends SimpleJavaFileObject {
+		private final String mCode;
+
+		Source(String className, String code) {
+			super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+			mCode = code;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return mCode;
+		}
+	}
+}
@@ -20,6 +20,7 @@ import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 
 import com.activeandroid.util.Log;
+import com.activeandroid.util.SQLiteUtils;
 
 public final class ActiveAndroid {
 
@@ -117,7 +118,7 @@ public final class ActiveAndroid {
 	}
 
 	public static void execSQL(Cache cache, String sql) {
-		cache.openDatabase().execSQL(sql);
+		SQLiteUtils.execSql(cache, sql);
 	}
 
 	public static void execSQL(String sql, Object[] bindArgs) {
@@ -125,6 +126,6 @@ public final class ActiveAndroid {
 	}
 
 	public static void execSQL(Cache cache, String sql, Object[] bindArgs) {
-		cache.openDatabase().execSQL(sql, bindArgs);
+		SQLiteUtils.execSql(cache, sql, bindArgs);
 	}
 }
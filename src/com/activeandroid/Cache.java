@@ -16,13 +16,24 @@ package com.activeandroid;
  * limitations under the License.
  */
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import android.content.Context;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.support.v4.util.LruCache;
 
+import com.activeandroid.query.QueryPlan;
 import com.activeandroid.serializer.TypeSerializer;
+import com.activeandroid.util.SQLiteUtils;
 import com.activeandroid.util.Log;
 
 public final class Cache {
@@ -32,15 +43,34 @@ public final class Cache {
 
 	public static final int DEFAULT_CACHE_SIZE = 1024;
 
+	public static final int SCAN_GUARD_DISABLED = -1;
+
+	public static final long SCAN_GUARD_DEFAULT_COUNT_INTERVAL_MILLIS = 1000;
+
 	//////////////////////////////////////////////////////////////////////////////////////
 	// PRIVATE MEMBERS
 	//////////////////////////////////////////////////////////////////////////////////////
 
 	private Context sContext;
 
-	private ModelInfo sModelInfo;
+	// Read without locking, the model info doesn't change once initialized.
+	private volatile ModelInfo sModelInfo;
 	private DatabaseHelper sDatabaseHelper;
 
+	private volatile EntityCache sEntities;
+	private DatabaseExecutor sExecutor;
+	private StatementCache sStatements;
+
+	// Debug only, statements already explained map to the tables they scan, whose row
+	// counts are checked again on each run, at most once per interval.
+	private volatile int sScanGuardRows = SCAN_GUARD_DISABLED;
+	private volatile boolean sScanGuardThrows;
+	private volatile long sScanGuardCountIntervalNanos = SCAN_GUARD_DEFAULT_COUNT_INTERVAL_MILLIS * 1000000L;
+	private final LruCache<String, ScanCheck> sCheckedPlans = new LruCache<String, ScanCheck>(256);
+	private final LruCache<String, RowCount> sRowCounts = new LruCache<String, RowCount>(64);
+
+	private final List<QueryListener> sQueryListeners = new CopyOnWriteArrayList<QueryListener>();
+
 	private boolean sIsInitialized = false;
 
 	//////////////////////////////////////////////////////////////////////////////////////
@@ -57,6 +87,15 @@ public final class Cache {
 		sModelInfo = new ModelInfo(configuration);
 		sDatabaseHelper = new DatabaseHelper(this, configuration);
 
+		// TODO: It would be nice to override sizeOf here and calculate the memory
+		// actually used, however at this point it seems like the reflection
+		// required would be too costly to be of any benefit. We'll just set a max
+		// object size instead.
+		sEntities = new EntityCache(configuration.getCacheSize(),
+				Configuration.CACHE_MODE_WEAK.equals(configuration.getCacheMode()));
+
+		sStatements = new StatementCache(this, StatementCache.DEFAULT_SIZE);
+
 		openDatabase();
 
 		sIsInitialized = true;
@@ -65,16 +104,32 @@ public final class Cache {
 	}
 
 	public synchronized void clear() {
+		sEntities.clear();
 		Log.v("Cache cleared.");
 	}
 
-	public synchronized void dispose() {
-		closeDatabase();
+	public void dispose() {
+		final DatabaseExecutor executor;
+		synchronized (this) {
+			executor = sExecutor;
+			sExecutor = null;
+		}
+
+		// Drain the writer before closing the database, outside the lock its tasks need.
+		if (executor != null) {
+			executor.shutdown();
+		}
 
-		sModelInfo = null;
-		sDatabaseHelper = null;
+		synchronized (this) {
+			clear();
+			closeDatabase();
 
-		sIsInitialized = false;
+			sEntities = null;
+			sModelInfo = null;
+			sDatabaseHelper = null;
+
+			sIsInitialized = false;
+		}
 
 		Log.v("ActiveAndroid disposed. Call initialize to use library.");
 	}
@@ -90,16 +145,129 @@ public final class Cache {
 	}
 
 	public synchronized void closeDatabase() {
+		sStatements.clear();
 		sDatabaseHelper.close();
 	}
 
+	/**
+	 * Gets the executor running the asynchronous reads and writes of this cache.
+	 */
+	public synchronized DatabaseExecutor getExecutor() {
+		if (sExecutor == null) {
+			sExecutor = new DatabaseExecutor();
+		}
+
+		return sExecutor;
+	}
+
+	/**
+	 * Gets the compiled statements of the scalar queries.
+	 */
+	public StatementCache getStatementCache() {
+		return sStatements;
+	}
+
+	// Query plans
+
+	/**
+	 * Debug guard checking the plan of every statement run through {@link SQLiteUtils} and
+	 * the compiled queries. Statements reading a table over the threshold in full, without
+	 * an index, are logged once or fail with an {@link IllegalStateException}. Each statement
+	 * is only explained once, the row counts of the tables it scans are checked again as
+	 * they grow. Scans of names that aren't a table or the alias of one are reported too.
+	 *
+	 * @param rowThreshold Scans of tables with more rows are reported, or
+	 * {@link #SCAN_GUARD_DISABLED}.
+	 */
+	public void setScanGuard(int rowThreshold, boolean throwOnScan) {
+		setScanGuard(rowThreshold, throwOnScan, SCAN_GUARD_DEFAULT_COUNT_INTERVAL_MILLIS);
+	}
+
+	/**
+	 * @param countIntervalMillis How long the row count of a scanned table is trusted before
+	 * it is counted again, 0 to count it on every check.
+	 * @see #setScanGuard(int, boolean)
+	 */
+	public void setScanGuard(int rowThreshold, boolean throwOnScan, long countIntervalMillis) {
+		sCheckedPlans.evictAll();
+		sRowCounts.evictAll();
+		sScanGuardCountIntervalNanos = countIntervalMillis * 1000000L;
+		sScanGuardThrows = throwOnScan;
+		sScanGuardRows = rowThreshold;
+	}
+
+	public void checkQueryPlan(String sql, Object[] bindArgs) {
+		final int threshold = sScanGuardRows;
+		if (threshold == SCAN_GUARD_DISABLED) {
+			return;
+		}
+
+		ScanCheck check = sCheckedPlans.get(sql);
+		if (check == null) {
+			check = explainScans(sql, bindArgs);
+			if (check == null) {
+				return;
+			}
+			sCheckedPlans.put(sql, check);
+		}
+
+		final String violation = findScanViolation(check, threshold);
+		if (violation == null) {
+			return;
+		}
+
+		if (sScanGuardThrows) {
+			throw new IllegalStateException(violation);
+		}
+
+		if (!check.reported) {
+			check.reported = true;
+			Log.w(violation);
+		}
+	}
+
+	// Query listeners
+
+	public void addQueryListener(QueryListener listener) {
+		sQueryListeners.add(listener);
+	}
+
+	public void removeQueryListener(QueryListener listener) {
+		sQueryListeners.remove(listener);
+	}
+
+	/**
+	 * @return <code>true</code> if statements are reported, to skip describing them otherwise.
+	 */
+	public boolean hasQueryListeners() {
+		return !sQueryListeners.isEmpty();
+	}
+
+	/**
+	 * Reports a statement that just completed to the query listeners.
+	 *
+	 * @param startNanos The value of {@link System#nanoTime()} before the statement ran.
+	 */
+	public void reportQuery(String sql, Object[] bindArgs, long startNanos, int rowCount) {
+		if (sQueryListeners.isEmpty()) {
+			return;
+		}
+
+		final long durationNanos = System.nanoTime() - startNanos;
+		final Thread thread = Thread.currentThread();
+
+		for (QueryListener listener : sQueryListeners) {
+			listener.onQuery(sql, bindArgs, durationNanos, rowCount, thread);
+		}
+	}
+
 	// Context access
 
 	public Context getContext() {
 		return sContext;
 	}
 
-	// Entity cache
+	// Entity cache, synchronized by the EntityCache itself so reads don't wait on the database lock.
 
 	public String getIdentifier(Class<? extends Model> type, Long id) {
 		return getTableName(type) + "@" + id;
@@ -109,31 +277,213 @@ public final class Cache {
 		return getIdentifier(entity.getClass(), entity.getId());
 	}
 
-//	public synchronized void addEntity(Model entity) {
-//	}
-//
-//	public synchronized Model getEntity(Class<? extends Model> type, long id) {
-//		return null;
-//	}
-//
-//	public synchronized void removeEntity(Model entity) {
-//	}
+	public void addEntity(Model entity) {
+		if (entity.getId() != null) {
+			sEntities.put(getIdentifier(entity), entity);
+		}
+	}
+
+	/**
+	 * @return The identity map, mostly to read its hit, miss and eviction counters.
+	 */
+	public EntityCache getEntityCache() {
+		return sEntities;
+	}
+
+	public Model getEntity(Class<? extends Model> type, long id) {
+		return sEntities.get(getIdentifier(type, id));
+	}
+
+	public void removeEntity(Model entity) {
+		if (entity.getId() != null) {
+			sEntities.remove(getIdentifier(entity));
+		}
+	}
+
+	public void removeEntity(Class<? extends Model> type, long id) {
+		sEntities.remove(getIdentifier(type, id));
+	}
+
+	/**
+	 * Evicts every cached entity of a table, for statements affecting rows we can't identify.
+	 */
+	public void removeEntities(Class<? extends Model> type) {
+		sEntities.removeAll(getTableName(type) + "@");
+	}
 
 	// Model cache
 
-	public synchronized Collection<TableInfo> getTableInfos() {
+	public Collection<TableInfo> getTableInfos() {
 		return sModelInfo.getTableInfos();
 	}
 
-	public synchronized TableInfo getTableInfo(Class<? extends Model> type) {
+	public TableInfo getTableInfo(Class<? extends Model> type) {
 		return sModelInfo.getTableInfo(type);
 	}
 
-	public synchronized TypeSerializer getParserForType(Class<?> type) {
+	public TypeSerializer getParserForType(Class<?> type) {
 		return sModelInfo.getTypeSerializer(type);
 	}
 
-	public synchronized String getTableName(Class<? extends Model> type) {
+	public String getTableName(Class<? extends Model> type) {
 		return sModelInfo.getTableInfo(type).getTableName();
 	}
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return The tables scanned by the statement, or null if it can't be explained with
+	 * these arguments.
+	 */
+	private ScanCheck explainScans(String sql, Object[] bindArgs) {
+		final String verb = sql.trim().split("\\s", 2)[0].toUpperCase(Locale.US);
+		if (!verb.equals("SELECT") && !verb.equals("UPDATE") && !verb.equals("DELETE")) {
+			return ScanCheck.NONE;
+		}
+
+		String[] args = null;
+		if (bindArgs != null) {
+			args = new String[bindArgs.length];
+			for (int i = 0; i < args.length; i++) {
+				if (bindArgs[i] == null) {
+					return null;
+				}
+				args[i] = bindArgs[i].toString();
+			}
+		}
+
+		final QueryPlan plan;
+		try {
+			plan = SQLiteUtils.explainQuery(this, sql, args);
+		}
+		catch (SQLException e) {
+			return ScanCheck.NONE;
+		}
+
+		final List<String> tables = new ArrayList<String>();
+		final List<String> unknownNames = new ArrayList<String>();
+
+		for (String name : plan.getScannedTables()) {
+			// Subqueries materialized by SQLite, e.g. "SCAN (subquery-1)".
+			if (name.startsWith("(")) {
+				continue;
+			}
+
+			final String table = resolveTableName(name, sql);
+			if (table != null) {
+				tables.add(table);
+			}
+			else {
+				unknownNames.add(name);
+			}
+		}
+
+		if (tables.isEmpty() && unknownNames.isEmpty()) {
+			return ScanCheck.NONE;
+		}
+
+		return new ScanCheck(tables, unknownNames, plan.toString());
+	}
+
+	/**
+	 * @return A description of the full scan, or null if there is none.
+	 */
+	private String findScanViolation(ScanCheck check, int threshold) {
+		if (!check.unknownNames.isEmpty()) {
+			return "Full scan of " + check.unknownNames.get(0) + ", not a known table: " + check.plan;
+		}
+
+		for (String table : check.tables) {
+			final long rows = getRowCount(table);
+			if (rows > threshold) {
+				return "Full scan of " + table + " (" + rows + " rows): " + check.plan;
+			}
+		}
+
+		return null;
+	}
+
+	private long getRowCount(String table) {
+		final long now = System.nanoTime();
+		final RowCount cached = sRowCounts.get(table);
+		if (cached != null && now - cached.checkedNanos < sScanGuardCountIntervalNanos) {
+			return cached.rows;
+		}
+
+		final long rows;
+		final SQLiteStatement count = openDatabase().compileStatement("SELECT COUNT(*) FROM " + table);
+		try {
+			rows = count.simpleQueryForLong();
+		}
+		finally {
+			count.close();
+		}
+
+		sRowCounts.put(table, new RowCount(rows, now));
+		return rows;
+	}
+
+	/**
+	 * Resolves a name of a query plan, a table or since SQLite 3.36 possibly its alias.
+	 *
+	 * @return The name of the table, or null if it isn't one of the model tables.
+	 */
+	private String resolveTableName(String name, String sql) {
+		final String table = findTableName(name);
+		if (table != null) {
+			return table;
+		}
+
+		final Matcher matcher = Pattern.compile("(\\w+)\\s+(?:AS\\s+)?" + Pattern.quote(name) + "\\b",
+				Pattern.CASE_INSENSITIVE).matcher(sql);
+		while (matcher.find()) {
+			final String aliased = findTableName(matcher.group(1));
+			if (aliased != null) {
+				return aliased;
+			}
+		}
+
+		return null;
+	}
+
+	private String findTableName(String name) {
+		for (TableInfo tableInfo : getTableInfos()) {
+			if (tableInfo.getTableName().equalsIgnoreCase(name)) {
+				return tableInfo.getTableName();
+			}
+		}
+
+		return null;
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// INNER CLASSES
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private static final class ScanCheck {
+		static final ScanCheck NONE = new ScanCheck(Collections.<String>emptyList(),
+				Collections.<String>emptyList(), null);
+
+		final List<String> tables;
+		final List<String> unknownNames;
+		final String plan;
+		volatile boolean reported;
+
+		ScanCheck(List<String> tables, List<String> unknownNames, String plan) {
+			this.tables = tables;
+			this.unknownNames = unknownNames;
+			this.plan = plan;
+		}
+	}
+
+	private static final class RowCount {
+		final long rows;
+		final long checkedNanos;
+
+		RowCount(long rows, long checkedNanos) {
+			this.rows = rows;
+			this.checkedNanos = checkedNanos;
+		}
+	}
 }
@@ -0,0 +1,654 @@
+package com.activeandroid;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.lang.reflect.Field;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
+
+import com.activeandroid.serializer.TypeSerializer;
+import com.activeandroid.util.Log;
+import com.activeandroid.util.ReflectionUtils;
+import com.activeandroid.util.SQLiteUtils.SQLiteType;
+
+/**
+ * Reads and writes a single column of a model. Binders are created once per
+ * {@link TableInfo} with their field made accessible and their {@link TypeSerializer}
+ * and storage type already resolved, so saving and loading rows does not need to
+ * dispatch on the field type. When the model has a generated {@link TableAdapter} the
+ * field is read and written through it instead of through reflection.
+ */
+public abstract class ColumnBinder {
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE MEMBERS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private final Field mField;
+	private final String mName;
+	private final TypeSerializer mTypeSerializer;
+	private final SQLiteType mSQLiteType;
+	private final Object mNullValue;
+
+	@SuppressWarnings("rawtypes")
+	private TableAdapter mTableAdapter;
+	private int mFieldIndex = -1;
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTORS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private ColumnBinder(Field field, String name, TypeSerializer typeSerializer, SQLiteType sqliteType) {
+		mField = field;
+		mName = name;
+		mTypeSerializer = typeSerializer;
+		mSQLiteType = sqliteType;
+		mNullValue = getNullValue(field.getType());
+
+		mField.setAccessible(true);
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PUBLIC METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates the binder for a column, or returns null if there is no storage mapping for
+	 * the (serialized) field type.
+	 */
+	public static ColumnBinder create(Field field, String name, TypeSerializer typeSerializer) {
+		Class<?> type = field.getType();
+		if (typeSerializer != null) {
+			type = typeSerializer.getSerializedType();
+		}
+
+		if (type.equals(Byte.class) || type.equals(byte.class)) {
+			return new ByteBinder(field, name, typeSerializer);
+		}
+		else if (type.equals(Short.class) || type.equals(short.class)) {
+			return new ShortBinder(field, name, typeSerializer);
+		}
+		else if (type.equals(Integer.class) || type.equals(int.class)) {
+			return new IntegerBinder(field, name, typeSerializer);
+		}
+		else if (type.equals(Long.class) || type.equals(long.class)) {
+			return new LongBinder(field, name, typeSerializer);
+		}
+		else if (type.equals(Float.class) || type.equals(float.class)) {
+			return new FloatBinder(field, name, typeSerializer);
+		}
+		else if (type.equals(Double.class) || type.equals(double.class)) {
+			return new DoubleBinder(field, name, typeSerializer);
+		}
+		else if (type.equals(Boolean.class) || type.equals(boolean.class)) {
+			return new BooleanBinder(field, name, typeSerializer);
+		}
+		else if (type.equals(Character.class) || type.equals(char.class)) {
+			return new CharacterBinder(field, name, typeSerializer);
+		}
+		else if (type.equals(String.class)) {
+			return new StringBinder(field, name, typeSerializer);
+		}
+		else if (type.equals(Byte[].class) || type.equals(byte[].class)) {
+			return new BlobBinder(field, name, typeSerializer);
+		}
+		else if (ReflectionUtils.isModel(type)) {
+			return new ModelBinder(field, name, typeSerializer, type);
+		}
+		else if (ReflectionUtils.isSubclassOf(type, Enum.class)) {
+			return new EnumBinder(field, name, typeSerializer, type);
+		}
+		else if (ReflectionUtils.isLazy(type)) {
+			final Class<? extends Model> entityType = ReflectionUtils.getReferencedType(field);
+			if (entityType != null) {
+				return new LazyBinder(field, name, typeSerializer, entityType);
+			}
+		}
+
+		return null;
+	}
+
+	public Field getField() {
+		return mField;
+	}
+
+	public String getName() {
+		return mName;
+	}
+
+	public TypeSerializer getTypeSerializer() {
+		return mTypeSerializer;
+	}
+
+	public SQLiteType getSQLiteType() {
+		return mSQLiteType;
+	}
+
+	/**
+	 * @return Whether the column holds strings or blobs of unbounded length, which
+	 * projections leave out by default.
+	 */
+	public boolean isVariableLength() {
+		final Class<?> type = mTypeSerializer != null ? mTypeSerializer.getSerializedType() : mField.getType();
+		return mSQLiteType == SQLiteType.BLOB || (mSQLiteType == SQLiteType.TEXT && type.equals(String.class));
+	}
+
+	/**
+	 * Reads the field of the model, serializes it if needed and puts it in the values.
+	 */
+	public final void save(Model model, ContentValues values) {
+		try {
+			Object value = getFieldValue(model);
+
+			if (value != null && mTypeSerializer != null) {
+				value = mTypeSerializer.serialize(value);
+			}
+
+			if (value == null) {
+				values.putNull(mName);
+			}
+			else {
+				putValue(values, value);
+			}
+		}
+		catch (IllegalArgumentException e) {
+			Log.e(e.getClass().getName(), e);
+		}
+		catch (IllegalAccessException e) {
+			Log.e(e.getClass().getName(), e);
+		}
+		catch (ClassCastException e) {
+			logWrongType(e);
+		}
+	}
+
+	/**
+	 * Reads the field of the model, serializes it if needed and binds it to the argument
+	 * at the given index of a compiled statement.
+	 */
+	public final void bind(Model model, SQLiteStatement statement, int index) {
+		try {
+			Object value = getFieldValue(model);
+
+			if (value != null && mTypeSerializer != null) {
+				value = mTypeSerializer.serialize(value);
+			}
+
+			if (value == null) {
+				statement.bindNull(index);
+			}
+			else {
+				bindValue(statement, index, value);
+			}
+		}
+		catch (IllegalArgumentException e) {
+			Log.e(e.getClass().getName(), e);
+		}
+		catch (IllegalAccessException e) {
+			Log.e(e.getClass().getName(), e);
+		}
+		catch (ClassCastException e) {
+			logWrongType(e);
+		}
+	}
+
+	/**
+	 * Reads the column at the given index, deserializes it if needed and sets it on the
+	 * field of the model. Null columns reset the field to null, or to the default value
+	 * of a primitive field, so models loaded again from a cursor don't keep stale values.
+	 */
+	public final void load(Model model, Cursor cursor, int columnIndex) {
+		load(model, cursor, columnIndex, null);
+	}
+
+	/**
+	 * Like {@link #load(Model, Cursor, int)}, but foreign keys are handed to the resolver
+	 * to be loaded together with those of the other rows.
+	 */
+	public void load(Model model, Cursor cursor, int columnIndex, ForeignKeyResolver resolver) {
+		try {
+			if (cursor.isNull(columnIndex)) {
+				setFieldValue(model, mNullValue);
+				return;
+			}
+
+			Object value = readValue(model, cursor, columnIndex);
+
+			if (mTypeSerializer != null) {
+				value = mTypeSerializer.deserialize(value);
+			}
+
+			setFieldValue(model, value != null ? value : mNullValue);
+		}
+		catch (IllegalArgumentException e) {
+			Log.e(e.getClass().getName(), e);
+		}
+		catch (IllegalAccessException e) {
+			Log.e(e.getClass().getName(), e);
+		}
+		catch (SecurityException e) {
+			Log.e(e.getClass().getName(), e);
+		}
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PACKAGE PRIVATE METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	void setTableAdapter(TableAdapter<?> tableAdapter, int fieldIndex) {
+		mTableAdapter = tableAdapter;
+		mFieldIndex = fieldIndex;
+	}
+
+	void setValue(Model model, Object value) {
+		try {
+			setFieldValue(model, value);
+		}
+		catch (IllegalArgumentException e) {
+			Log.e(e.getClass().getName(), e);
+		}
+		catch (IllegalAccessException e) {
+			Log.e(e.getClass().getName(), e);
+		}
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PROTECTED METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	protected abstract void putValue(ContentValues values, Object value);
+
+	protected abstract void bindValue(SQLiteStatement statement, int index, Object value);
+
+	protected abstract Object readValue(Model model, Cursor cursor, int columnIndex);
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private static void bindId(SQLiteStatement statement, int index, Long id) {
+		if (id == null) {
+			statement.bindNull(index);
+		}
+		else {
+			statement.bindLong(index, id);
+		}
+	}
+
+	private static Object getNullValue(Class<?> type) {
+		if (!type.isPrimitive()) {
+			return null;
+		}
+
+		if (type.equals(boolean.class)) {
+			return Boolean.FALSE;
+		}
+		else if (type.equals(char.class)) {
+			return Character.valueOf((char) 0);
+		}
+		else if (type.equals(byte.class)) {
+			return Byte.valueOf((byte) 0);
+		}
+		else if (type.equals(short.class)) {
+			return Short.valueOf((short) 0);
+		}
+		else if (type.equals(int.class)) {
+			return Integer.valueOf(0);
+		}
+		else if (type.equals(long.class)) {
+			return Long.valueOf(0);
+		}
+		else if (type.equals(float.class)) {
+			return Float.valueOf(0);
+		}
+
+		return Double.valueOf(0);
+	}
+
+	private void logWrongType(ClassCastException e) {
+		if (mTypeSerializer != null) {
+			Log.w(String.format("TypeSerializer returned wrong type: expected a %s for column %s",
+					mTypeSerializer.getSerializedType(), mName), e);
+		}
+		else {
+			Log.w(String.format("Field %s of type %s can't be stored in column %s",
+					mField.getName(), mField.getType().getName(), mName), e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private Object getFieldValue(Model model) throws IllegalAccessException {
+		if (mTableAdapter != null) {
+			return mTableAdapter.getValue(model, mFieldIndex);
+		}
+
+		return mField.get(model);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void setFieldValue(Model model, Object value) throws IllegalAccessException {
+		if (mTableAdapter != null) {
+			mTableAdapter.setValue(model, mFieldIndex, value);
+		}
+		else {
+			mField.set(model, value);
+		}
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// INNER CLASSES
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private static final class ByteBinder extends ColumnBinder {
+		ByteBinder(Field field, String name, TypeSerializer typeSerializer) {
+			super(field, name, typeSerializer, SQLiteType.INTEGER);
+		}
+
+		@Override
+		protected void putValue(ContentValues values, Object value) {
+			values.put(getName(), ((Number) value).byteValue());
+		}
+
+		@Override
+		protected void bindValue(SQLiteStatement statement, int index, Object value) {
+			statement.bindLong(index, ((Number) value).longValue());
+		}
+
+		@Override
+		protected Object readValue(Model model, Cursor cursor, int columnIndex) {
+			return (byte) cursor.getInt(columnIndex);
+		}
+	}
+
+	private static final class ShortBinder extends ColumnBinder {
+		ShortBinder(Field field, String name, TypeSerializer typeSerializer) {
+			super(field, name, typeSerializer, SQLiteType.INTEGER);
+		}
+
+		@Override
+		protected void putValue(ContentValues values, Object value) {
+			values.put(getName(), ((Number) value).shortValue());
+		}
+
+		@Override
+		protected void bindValue(SQLiteStatement statement, int index, Object value) {
+			statement.bindLong(index, ((Number) value).longValue());
+		}
+
+		@Override
+		protected Object readValue(Model model, Cursor cursor, int columnIndex) {
+			return cursor.getShort(columnIndex);
+		}
+	}
+
+	private static final class IntegerBinder extends ColumnBinder {
+		IntegerBinder(Field field, String name, TypeSerializer typeSerializer) {
+			super(field, name, typeSerializer, SQLiteType.INTEGER);
+		}
+
+		@Override
+		protected void putValue(ContentValues values, Object value) {
+			values.put(getName(), ((Number) value).intValue());
+		}
+
+		@Override
+		protected void bindValue(SQLiteStatement statement, int index, Object value) {
+			statement.bindLong(index, ((Number) value).longValue());
+		}
+
+		@Override
+		protected Object readValue(Model model, Cursor cursor, int columnIndex) {
+			return cursor.getInt(columnIndex);
+		}
+	}
+
+	private static final class LongBinder extends ColumnBinder {
+		LongBinder(Field field, String name, TypeSerializer typeSerializer) {
+			super(field, name, typeSerializer, SQLiteType.INTEGER);
+		}
+
+		@Override
+		protected void putValue(ContentValues values, Object value) {
+			values.put(getName(), ((Number) value).longValue());
+		}
+
+		@Override
+		protected void bindValue(SQLiteStatement statement, int index, Object value) {
+			statement.bindLong(index, ((Number) value).longValue());
+		}
+
+		@Override
+		protected Object readValue(Model model, Cursor cursor, int columnIndex) {
+			return cursor.getLong(columnIndex);
+		}
+	}
+
+	private static final class FloatBinder extends ColumnBinder {
+		FloatBinder(Field field, String name, TypeSerializer typeSerializer) {
+			super(field, name, typeSerializer, SQLiteType.REAL);
+		}
+
+		@Override
+		protected void putValue(ContentValues values, Object value) {
+			values.put(getName(), ((Number) value).floatValue());
+		}
+
+		@Override
+		protected void bindValue(SQLiteStatement statement, int index, Object value) {
+			statement.bindDouble(index, ((Number) value).doubleValue());
+		}
+
+		@Override
+		protected Object readValue(Model model, Cursor cursor, int columnIndex) {
+			return cursor.getFloat(columnIndex);
+		}
+	}
+
+	private static final class DoubleBinder extends ColumnBinder {
+		DoubleBinder(Field field, String name, TypeSerializer typeSerializer) {
+			super(field, name, typeSerializer, SQLiteType.REAL);
+		}
+
+		@Override
+		protected void putValue(ContentValues values, Object value) {
+			values.put(getName(), ((Number) value).doubleValue());
+		}
+
+		@Override
+		protected void bindValue(SQLiteStatement statement, int index, Object value) {
+			statement.bindDouble(index, ((Number) value).doubleValue());
+		}
+
+		@Override
+		protected Object readValue(Model model, Cursor cursor, int columnIndex) {
+			return cursor.getDouble(columnIndex);
+		}
+	}
+
+	private static final class BooleanBinder extends ColumnBinder {
+		BooleanBinder(Field field, String name, TypeSerializer typeSerializer) {
+			super(field, name, typeSerializer, SQLiteType.INTEGER);
+		}
+
+		@Override
+		protected void putValue(ContentValues values, Object value) {
+			values.put(getName(), (Boolean) value);
+		}
+
+		@Override
+		protected void bindValue(SQLiteStatement statement, int index, Object value) {
+			statement.bindLong(index, (Boolean) value ? 1 : 0);
+		}
+
+		@Override
+		protected Object readValue(Model model, Cursor cursor, int columnIndex) {
+			return cursor.getInt(columnIndex) != 0;
+		}
+	}
+
+	private static final class CharacterBinder extends ColumnBinder {
+		CharacterBinder(Field field, String name, TypeSerializer typeSerializer) {
+			super(field, name, typeSerializer, SQLiteType.TEXT);
+		}
+
+		@Override
+		protected void putValue(ContentValues values, Object value) {
+			values.put(getName(), value.toString());
+		}
+
+		@Override
+		protected void bindValue(SQLiteStatement statement, int index, Object value) {
+			statement.bindString(index, value.toString());
+		}
+
+		@Override
+		protected Object readValue(Model model, Cursor cursor, int columnIndex) {
+			return cursor.getString(columnIndex).charAt(0);
+		}
+	}
+
+	private static final class StringBinder extends ColumnBinder {
+		StringBinder(Field field, String name, TypeSerializer typeSerializer) {
+			super(field, name, typeSerializer, SQLiteType.TEXT);
+		}
+
+		@Override
+		protected void putValue(ContentValues values, Object value) {
+			values.put(getName(), value.toString());
+		}
+
+		@Override
+		protected void bindValue(SQLiteStatement statement, int index, Object value) {
+			statement.bindString(index, value.toString());
+		}
+
+		@Override
+		protected Object readValue(Model model, Cursor cursor, int columnIndex) {
+			return cursor.getString(columnIndex);
+		}
+	}
+
+	private static final class BlobBinder extends ColumnBinder {
+		BlobBinder(Field field, String name, TypeSerializer typeSerializer) {
+			super(field, name, typeSerializer, SQLiteType.BLOB);
+		}
+
+		@Override
+		protected void putValue(ContentValues values, Object value) {
+			values.put(getName(), (byte[]) value);
+		}
+
+		@Override
+		protected void bindValue(SQLiteStatement statement, int index, Object value) {
+			statement.bindBlob(index, (byte[]) value);
+		}
+
+		@Override
+		protected Object readValue(Model model, Cursor cursor, int columnIndex) {
+			return cursor.getBlob(columnIndex);
+		}
+	}
+
+	private static final class ModelBinder extends ColumnBinder {
+		private final Class<? extends Model> mEntityType;
+
+		@SuppressWarnings("unchecked")
+		ModelBinder(Field field, String name, TypeSerializer typeSerializer, Class<?> entityType) {
+			super(field, name, typeSerializer, SQLiteType.INTEGER);
+			mEntityType = (Class<? extends Model>) entityType;
+		}
+
+		@Override
+		protected void putValue(ContentValues values, Object value) {
+			values.put(getName(), ((Model) value).getId());
+		}
+
+		@Override
+		protected void bindValue(SQLiteStatement statement, int index, Object value) {
+			bindId(statement, index, ((Model) value).getId());
+		}
+
+		@Override
+		public void load(Model model, Cursor cursor, int columnIndex, ForeignKeyResolver resolver) {
+			if (resolver == null || getTypeSerializer() != null || cursor.isNull(columnIndex)) {
+				super.load(model, cursor, columnIndex, resolver);
+				return;
+			}
+
+			resolver.add(this, mEntityType, model, cursor.getLong(columnIndex));
+		}
+
+		@Override
+		protected Object readValue(Model model, Cursor cursor, int columnIndex) {
+			final Cache cache = model.getCache();
+			return Model.load(cache, mEntityType, cursor.getLong(columnIndex));
+		}
+	}
+
+	private static final class LazyBinder extends ColumnBinder {
+		private final Class<? extends Model> mEntityType;
+
+		LazyBinder(Field field, String name, TypeSerializer typeSerializer, Class<? extends Model> entityType) {
+			super(field, name, typeSerializer, SQLiteType.INTEGER);
+			mEntityType = entityType;
+		}
+
+		@Override
+		protected void putValue(ContentValues values, Object value) {
+			values.put(getName(), ((Lazy<?>) value).getId());
+		}
+
+		@Override
+		protected void bindValue(SQLiteStatement statement, int index, Object value) {
+			bindId(statement, index, ((Lazy<?>) value).getId());
+		}
+
+		@Override
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		protected Object readValue(Model model, Cursor cursor, int columnIndex) {
+			return new Lazy(model.getCache(), mEntityType, cursor.getLong(columnIndex));
+		}
+	}
+
+	private static final class EnumBinder extends ColumnBinder {
+		@SuppressWarnings("rawtypes")
+		private final Class<? extends Enum> mEnumType;
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		EnumBinder(Field field, String name, TypeSerializer typeSerializer, Class<?> enumType) {
+			super(field, name, typeSerializer, SQLiteType.TEXT);
+			mEnumType = (Class<? extends Enum>) enumType;
+		}
+
+		@Override
+		protected void putValue(ContentValues values, Object value) {
+			values.put(getName(), ((Enum<?>) value).name());
+		}
+
+		@Override
+		protected void bindValue(SQLiteStatement statement, int index, Object value) {
+			statement.bindString(index, ((Enum<?>) value).name());
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		protected Object readValue(Model model, Cursor cursor, int columnIndex) {
+			return Enum.valueOf(mEnumType, cursor.getString(columnIndex));
+		}
+	}
+}
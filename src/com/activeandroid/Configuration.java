@@ -31,6 +31,9 @@ public class Configuration {
     public final static String SQL_PARSER_LEGACY = "legacy";
     public final static String SQL_PARSER_DELIMITED = "delimited";
 
+    public final static String CACHE_MODE_STRONG = "strong";
+    public final static String CACHE_MODE_WEAK = "weak";
+
 	//////////////////////////////////////////////////////////////////////////////////////
 	// PRIVATE MEMBERS
 	//////////////////////////////////////////////////////////////////////////////////////
@@ -42,6 +45,7 @@ public class Configuration {
 	private List<Class<? extends Model>> mModelClasses;
 	private List<Class<? extends TypeSerializer>> mTypeSerializers;
 	private int mCacheSize;
+	private String mCacheMode;
 
 	//////////////////////////////////////////////////////////////////////////////////////
 	// CONSTRUCTORS
@@ -83,6 +87,10 @@ public class Configuration {
 		return mCacheSize;
 	}
 
+	public String getCacheMode() {
+		return mCacheMode;
+	}
+
 	public boolean isValid() {
 		return mModelClasses != null && mModelClasses.size() > 0;
 	}
@@ -101,10 +109,12 @@ public class Configuration {
 		private final static String AA_MODELS = "AA_MODELS";
 		private final static String AA_SERIALIZERS = "AA_SERIALIZERS";
 		private final static String AA_SQL_PARSER = "AA_SQL_PARSER";
+		private final static String AA_CACHE_MODE = "AA_CACHE_MODE";
 
 		private static final int DEFAULT_CACHE_SIZE = 1024;
 		private static final String DEFAULT_DB_NAME = "Application.db";
 		private static final String DEFAULT_SQL_PARSER = SQL_PARSER_LEGACY;
+		private static final String DEFAULT_CACHE_MODE = CACHE_MODE_STRONG;
 
 		//////////////////////////////////////////////////////////////////////////////////////
 		// PRIVATE MEMBERS
@@ -113,6 +123,7 @@ public class Configuration {
 		private Context mContext;
 
 		private Integer mCacheSize;
+		private String mCacheMode;
 		private String mDatabaseName;
 		private Integer mDatabaseVersion;
 		private String mSqlParser;
@@ -137,6 +148,7 @@ public class Configuration {
 			mModelClasses = seed.mModelClasses;
 			mTypeSerializers = seed.mTypeSerializers;
 			mCacheSize = seed.mCacheSize;
+			mCacheMode = seed.mCacheMode;
 		}
 
 		//////////////////////////////////////////////////////////////////////////////////////
@@ -148,6 +160,15 @@ public class Configuration {
 			return this;
 		}
 
+		/**
+		 * With {@link Configuration#CACHE_MODE_WEAK} the cache size only bounds the
+		 * strongly held models, every other model stays cached while it's in use.
+		 */
+		public Builder setCacheMode(String cacheMode) {
+			mCacheMode = cacheMode;
+			return this;
+		}
+
 		public Builder setDatabaseName(String databaseName) {
 			mDatabaseName = databaseName;
 			return this;
@@ -233,6 +254,13 @@ public class Configuration {
 			} else {
 			    configuration.mSqlParser = getMetaDataSqlParserOrDefault();
 			}
+
+			// Get cache mode from meta-data
+			if (mCacheMode != null) {
+				configuration.mCacheMode = mCacheMode;
+			} else {
+				configuration.mCacheMode = getMetaDataCacheModeOrDefault();
+			}
 			
 			// Get model classes from meta-data
 			if (mModelClasses != null) {
@@ -289,6 +317,14 @@ public class Configuration {
 		    return mode;
 		}
 
+		private String getMetaDataCacheModeOrDefault() {
+			final String mode = ReflectionUtils.getMetaData(mContext, AA_CACHE_MODE);
+			if (mode == null) {
+				return DEFAULT_CACHE_MODE;
+			}
+			return mode;
+		}
+
 		private List<Class<? extends Model>> loadModelList(String[] models) {
 			final List<Class<? extends Model>> modelClasses = new ArrayList<Class<? extends Model>>();
 			final ClassLoader classLoader = mContext.getClass().getClassLoader();
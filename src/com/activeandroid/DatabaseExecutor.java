@@ -0,0 +1,197 @@
+package com.activeandroid;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.activeandroid.util.Log;
+
+/**
+ * Runs the asynchronous tasks of a {@link Cache}. Reads run on a small pool while writes
+ * are serialized on a single thread, in submission order. Reads aren't ordered against
+ * writes: wait for the future of a write before reading what it wrote.
+ */
+public final class DatabaseExecutor {
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE CONSTANTS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private static final int READ_THREADS = 2;
+	private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE MEMBERS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private final ExecutorService mReadExecutor;
+	private final ExecutorService mWriteExecutor;
+	private Handler mMainHandler;
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTORS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	DatabaseExecutor() {
+		mReadExecutor = Executors.newFixedThreadPool(READ_THREADS, new DatabaseThreadFactory("read"));
+		mWriteExecutor = Executors.newSingleThreadExecutor(new DatabaseThreadFactory("write"));
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PUBLIC METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	public <T> Future<T> read(Callable<T> task) {
+		return read(task, null);
+	}
+
+	/**
+	 * Runs a read on the read pool.
+	 *
+	 * @param callback Notified on the main thread, can be null.
+	 */
+	public <T> Future<T> read(Callable<T> task, AsyncCallback<T> callback) {
+		return submit(mReadExecutor, task, callback);
+	}
+
+	public <T> Future<T> write(Callable<T> task) {
+		return write(task, null);
+	}
+
+	/**
+	 * Runs a write on the writer thread, after every write submitted before it.
+	 *
+	 * @param callback Notified on the main thread, can be null.
+	 */
+	public <T> Future<T> write(Callable<T> task, AsyncCallback<T> callback) {
+		return submit(mWriteExecutor, task, callback);
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PACKAGE PRIVATE METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Cancels the pending reads and waits for the running read and every submitted write
+	 * to finish, so the database can be closed afterwards.
+	 */
+	void shutdown() {
+		mReadExecutor.shutdownNow();
+		mWriteExecutor.shutdown();
+
+		try {
+			if (!mReadExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+					|| !mWriteExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				Log.w("Database tasks still running after " + SHUTDOWN_TIMEOUT_SECONDS + "s, closing anyway.");
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private <T> Future<T> submit(ExecutorService executor, Callable<T> task, AsyncCallback<T> callback) {
+		final FutureTask<T> future = callback != null
+				? new CallbackTask<T>(task, callback) : new FutureTask<T>(task);
+
+		executor.execute(future);
+		return future;
+	}
+
+	private synchronized Handler getMainHandler() {
+		if (mMainHandler == null) {
+			mMainHandler = new Handler(Looper.getMainLooper());
+		}
+
+		return mMainHandler;
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// INNER CLASSES
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private final class CallbackTask<T> extends FutureTask<T> {
+		private final AsyncCallback<T> mCallback;
+
+		CallbackTask(Callable<T> task, AsyncCallback<T> callback) {
+			super(task);
+			mCallback = callback;
+		}
+
+		@Override
+		protected void done() {
+			if (isCancelled()) {
+				return;
+			}
+
+			getMainHandler().post(new Runnable() {
+				@Override
+				public void run() {
+					// Cancelled while the result was waiting for the main thread.
+					if (isCancelled()) {
+						return;
+					}
+
+					final T result;
+					try {
+						result = get();
+					}
+					catch (ExecutionException e) {
+						mCallback.onError(e.getCause());
+						return;
+					}
+					catch (InterruptedException e) {
+						mCallback.onError(e);
+						return;
+					}
+
+					mCallback.onResult(result);
+				}
+			});
+		}
+	}
+
+	private static final class DatabaseThreadFactory implements ThreadFactory {
+		private final String mName;
+		private final AtomicInteger mCount = new AtomicInteger();
+
+		DatabaseThreadFactory(String name) {
+			mName = name;
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			final Thread thread = new Thread(runnable, "ActiveAndroid-" + mName + "-" + mCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
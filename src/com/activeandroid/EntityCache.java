@@ -0,0 +1,230 @@
+package com.activeandroid;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import android.support.v4.util.LruCache;
+
+/**
+ * The identity map of a {@link Cache}. Recently used models are held by a strong LRU
+ * tier. In {@link Configuration#CACHE_MODE_WEAK} mode every cached model is also held
+ * weakly, so models still referenced by the application are shared by every query
+ * without being pinned by the cache.
+ */
+public final class EntityCache {
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE MEMBERS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private final LruCache<String, Model> mStrongEntities;
+	private final Map<String, EntityReference> mWeakEntities;
+	private final ReferenceQueue<Model> mQueue;
+
+	private long mHitCount;
+	private long mMissCount;
+	private long mEvictionCount;
+	private long mCollectedCount;
+	private boolean mClearing;
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTORS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	public EntityCache(int maxSize, boolean weak) {
+		mStrongEntities = new LruCache<String, Model>(maxSize) {
+			@Override
+			protected void entryRemoved(boolean evicted, String key, Model oldValue, Model newValue) {
+				// evictAll() reports its removals as evictions too, only count those made for room.
+				if (evicted && !mClearing) {
+					mEvictionCount++;
+				}
+			}
+		};
+
+		if (weak) {
+			mWeakEntities = new HashMap<String, EntityReference>();
+			mQueue = new ReferenceQueue<Model>();
+		}
+		else {
+			mWeakEntities = null;
+			mQueue = null;
+		}
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PUBLIC METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	public synchronized void put(String identifier, Model entity) {
+		mStrongEntities.put(identifier, entity);
+
+		if (mWeakEntities != null) {
+			purge();
+			mWeakEntities.put(identifier, new EntityReference(identifier, entity, mQueue));
+		}
+	}
+
+	public synchronized Model get(String identifier) {
+		Model entity = mStrongEntities.get(identifier);
+
+		if (entity == null && mWeakEntities != null) {
+			purge();
+
+			final EntityReference reference = mWeakEntities.get(identifier);
+			if (reference != null) {
+				entity = reference.get();
+			}
+
+			if (entity != null) {
+				// Still in use, move it back to the strong tier.
+				mStrongEntities.put(identifier, entity);
+			}
+		}
+
+		if (entity != null) {
+			mHitCount++;
+		}
+		else {
+			mMissCount++;
+		}
+
+		return entity;
+	}
+
+	public synchronized void remove(String identifier) {
+		mStrongEntities.remove(identifier);
+
+		if (mWeakEntities != null) {
+			mWeakEntities.remove(identifier);
+		}
+	}
+
+	/**
+	 * Removes every entity whose identifier starts with the given prefix.
+	 */
+	public synchronized void removeAll(String prefix) {
+		for (String identifier : mStrongEntities.snapshot().keySet()) {
+			if (identifier.startsWith(prefix)) {
+				mStrongEntities.remove(identifier);
+			}
+		}
+
+		if (mWeakEntities != null) {
+			for (String identifier : new ArrayList<String>(mWeakEntities.keySet())) {
+				if (identifier.startsWith(prefix)) {
+					mWeakEntities.remove(identifier);
+				}
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		mClearing = true;
+		try {
+			mStrongEntities.evictAll();
+		}
+		finally {
+			mClearing = false;
+		}
+
+		if (mWeakEntities != null) {
+			mWeakEntities.clear();
+			purge();
+		}
+	}
+
+	public boolean isWeak() {
+		return mWeakEntities != null;
+	}
+
+	/**
+	 * @return The number of entities held by the cache, strongly or weakly.
+	 */
+	public synchronized int size() {
+		if (mWeakEntities != null) {
+			purge();
+			return mWeakEntities.size();
+		}
+
+		return mStrongEntities.size();
+	}
+
+	public synchronized long getHitCount() {
+		return mHitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return mMissCount;
+	}
+
+	/**
+	 * @return The number of entities dropped from the strong tier to make room.
+	 */
+	public synchronized long getEvictionCount() {
+		return mEvictionCount;
+	}
+
+	/**
+	 * @return The number of weakly held entities reclaimed by the garbage collector.
+	 */
+	public synchronized long getCollectedCount() {
+		return mCollectedCount;
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// OVERRIDEN METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public synchronized String toString() {
+		return String.format("EntityCache[size=%d,hits=%d,misses=%d,evictions=%d,collected=%d]",
+				size(), mHitCount, mMissCount, mEvictionCount, mCollectedCount);
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private void purge() {
+		EntityReference reference;
+		while ((reference = (EntityReference) mQueue.poll()) != null) {
+			// The identifier may have been reused by a newer instance since.
+			if (mWeakEntities.get(reference.identifier) == reference) {
+				mWeakEntities.remove(reference.identifier);
+				mCollectedCount++;
+			}
+		}
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// INNER CLASSES
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private static final class EntityReference extends WeakReference<Model> {
+		final String identifier;
+
+		EntityReference(String identifier, Model entity, ReferenceQueue<Model> queue) {
+			super(entity, queue);
+			this.identifier = identifier;
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package com.activeandroid;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.activeandroid.query.Select;
+import com.activeandroid.util.SQLiteUtils;
+
+/**
+ * Collects the foreign keys of the rows of a cursor and loads the referenced models
+ * with one chunked <code>IN (...)</code> query per referenced type, instead of one
+ * query per row. Rows referencing the same id share the same instance.
+ */
+public final class ForeignKeyResolver {
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE MEMBERS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private final Cache mCache;
+
+	private final Map<Class<? extends Model>, Set<Long>> mIds = new LinkedHashMap<Class<? extends Model>, Set<Long>>();
+	private final List<PendingReference> mReferences = new ArrayList<PendingReference>();
+	private final List<Model> mSnapshots = new ArrayList<Model>();
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTORS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	public ForeignKeyResolver(Cache cache) {
+		mCache = cache;
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PUBLIC METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Loads every collected reference and sets it on the models that reference it.
+	 */
+	public void resolve() {
+		if (mReferences.isEmpty()) {
+			takeSnapshots();
+			return;
+		}
+
+		final Map<Class<? extends Model>, Map<Long, Model>> entities = new HashMap<Class<? extends Model>, Map<Long, Model>>();
+		for (Map.Entry<Class<? extends Model>, Set<Long>> entry : mIds.entrySet()) {
+			entities.put(entry.getKey(), load(entry.getKey(), new ArrayList<Long>(entry.getValue())));
+		}
+
+		for (PendingReference reference : mReferences) {
+			// Missing rows reset the reference, like a NULL column, so refreshed models don't keep it.
+			reference.binder.setValue(reference.model, entities.get(reference.type).get(reference.id));
+		}
+
+		mIds.clear();
+		mReferences.clear();
+
+		takeSnapshots();
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PACKAGE PRIVATE METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	void add(ColumnBinder binder, Class<? extends Model> type, Model model, long id) {
+		Set<Long> ids = mIds.get(type);
+		if (ids == null) {
+			ids = new LinkedHashSet<Long>();
+			mIds.put(type, ids);
+		}
+		ids.add(id);
+
+		mReferences.add(new PendingReference(binder, type, model, id));
+	}
+
+	/**
+	 * Snapshots a change tracking model once its references have been resolved.
+	 */
+	void addSnapshot(Model model) {
+		mSnapshots.add(model);
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private void takeSnapshots() {
+		for (Model model : mSnapshots) {
+			model.takeSnapshot();
+		}
+		mSnapshots.clear();
+	}
+
+	private Map<Long, Model> load(Class<? extends Model> type, List<Long> allIds) {
+		final String idName = mCache.getTableInfo(type).getIdName();
+		final Map<Long, Model> entities = new HashMap<Long, Model>(allIds.size());
+		final List<Long> ids = new ArrayList<Long>(allIds.size());
+
+		for (Long id : allIds) {
+			final Model entity = mCache.getEntity(type, id);
+			if (entity != null) {
+				entities.put(id, entity);
+			}
+			else {
+				ids.add(id);
+			}
+		}
+
+		final int size = ids.size();
+
+		for (int start = 0; start < size; start += SQLiteUtils.MAX_BOUND_VARIABLES) {
+			final List<Long> chunk = ids.subList(start, Math.min(size, start + SQLiteUtils.MAX_BOUND_VARIABLES));
+			final List<Model> chunkEntities = new Select(mCache).from(type)
+					.where(idName + " IN (" + SQLiteUtils.createPlaceholders(chunk.size()) + ")", chunk.toArray())
+					.execute();
+
+			for (Model entity : chunkEntities) {
+				entities.put(entity.getId(), entity);
+			}
+		}
+
+		return entities;
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// INNER CLASSES
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private static final class PendingReference {
+		final ColumnBinder binder;
+		final Class<? extends Model> type;
+		final Model model;
+		final long id;
+
+		PendingReference(ColumnBinder binder, Class<? extends Model> type, Model model, long id) {
+			this.binder = binder;
+			this.type = type;
+			this.model = model;
+			this.id = id;
+		}
+	}
+}
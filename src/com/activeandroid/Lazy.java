@@ -0,0 +1,120 @@
+package com.activeandroid;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * A foreign key column that only loads the referenced model the first time
+ * {@link #get()} is called.
+ *
+ * <pre>
+ * &#64;Column(name = "Customer")
+ * public Lazy&lt;Customer&gt; customer;
+ * </pre>
+ *
+ * The column is stored like a plain <code>Model</code> column, as an
+ * <code>INTEGER REFERENCES ...</code> holding the id of the referenced row.
+ */
+public final class Lazy<T extends Model> {
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE MEMBERS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private final Cache mCache;
+	private final Class<T> mType;
+	private Long mId;
+
+	private T mValue;
+	private boolean mLoaded;
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTORS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	public Lazy(Class<T> type, Long id) {
+		this(ActiveAndroid.getCache(), type, id);
+	}
+
+	public Lazy(Cache cache, Class<T> type, Long id) {
+		mCache = cache;
+		mType = type;
+		mId = id;
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PUBLIC METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Wraps an already loaded model.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends Model> Lazy<T> of(T value) {
+		final Lazy<T> lazy = new Lazy<T>(value.getCache(), (Class<T>) value.getClass(), value.getId());
+		lazy.mValue = value;
+		lazy.mLoaded = true;
+
+		return lazy;
+	}
+
+	public Class<T> getType() {
+		return mType;
+	}
+
+	/**
+	 * @return The id of the referenced row, without loading it.
+	 */
+	public synchronized Long getId() {
+		if (mLoaded && mValue != null) {
+			return mValue.getId();
+		}
+
+		return mId;
+	}
+
+	public synchronized boolean isLoaded() {
+		return mLoaded;
+	}
+
+	/**
+	 * Loads the referenced model on first access.
+	 *
+	 * @return The referenced model, or null if the row doesn't exist.
+	 */
+	public synchronized T get() {
+		if (!mLoaded) {
+			mValue = mId != null ? Model.load(mCache, mType, mId) : null;
+			mLoaded = true;
+		}
+
+		return mValue;
+	}
+
+	public synchronized void set(T value) {
+		mValue = value;
+		mId = value != null ? value.getId() : null;
+		mLoaded = true;
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// OVERRIDEN METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public String toString() {
+		return "Lazy<" + mType.getSimpleName() + ">@" + getId();
+	}
+}
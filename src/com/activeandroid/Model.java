@@ -18,19 +18,25 @@ package com.activeandroid;
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 
 import com.activeandroid.content.ContentProvider;
 import com.activeandroid.query.Delete;
 import com.activeandroid.query.Select;
-import com.activeandroid.serializer.TypeSerializer;
-import com.activeandroid.util.Log;
-import com.activeandroid.util.ReflectionUtils;
-
-import java.lang.reflect.Field;
+import com.activeandroid.util.SQLiteUtils;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 @SuppressWarnings("unchecked")
 public abstract class Model {
@@ -45,20 +51,30 @@ public abstract class Model {
 	private Long mId = null;
 
 	protected Cache mCache;
+	/** Handed over by TableInfo.newInstance, subclass constructors can't pass it to super(). */
+	static final ThreadLocal<TableInfo> sPendingTableInfo = new ThreadLocal<TableInfo>();
+
 	private final TableInfo mTableInfo;
 	private final String idName;
+
+	/** Column values as last loaded or saved, only kept when the table tracks changes. */
+	private ContentValues mSnapshot;
+
+	/** Columns loaded by a projection, null when every column was loaded. */
+	private boolean[] mLoadedColumns;
+	private boolean mPartialSaveAllowed;
 	//////////////////////////////////////////////////////////////////////////////////////
 	// CONSTRUCTORS
 	//////////////////////////////////////////////////////////////////////////////////////
 
 	public Model(Cache cache) {
 		mCache = cache;
-		mTableInfo = getCache().getTableInfo(getClass());
+		mTableInfo = takeTableInfo();
 		idName = mTableInfo.getIdName();
 	}
 
 	public Model() {
-		mTableInfo = getCache().getTableInfo(getClass());
+		mTableInfo = takeTableInfo();
 		idName = mTableInfo.getIdName();
 	}
 
@@ -71,11 +87,20 @@ public abstract class Model {
 	}
     public final void setId(Long id) {mId = id;}
 
+	public final TableInfo getTableInfo() {
+		return mTableInfo;
+	}
+
 	public int delete() {
         if(getId() == null)
             return 0;
 
-		int deletions = getCache().openDatabase().delete(mTableInfo.getTableName(), idName+"=?", new String[] { getId().toString() });
+		final long start = System.nanoTime();
+		final String[] whereArgs = new String[] { getId().toString() };
+		int deletions = getCache().openDatabase().delete(mTableInfo.getTableName(), idName+"=?", whereArgs);
+		getCache().reportQuery("DELETE FROM " + mTableInfo.getTableName() + " WHERE " + idName + "=?", whereArgs,
+				start, deletions);
+		getCache().removeEntity(this);
 
 		getCache().getContext().getContentResolver()
 				.notifyChange(ContentProvider.createUri(mTableInfo.getType(), mId), null);
@@ -84,99 +109,337 @@ public abstract class Model {
 	}
 
 	public Long save() {
+		checkPartialSave();
+
 		final SQLiteDatabase db = getCache().openDatabase();
-		final ContentValues values = new ContentValues();
+		final ContentValues values = getColumnValues();
 
-		for (Field field : mTableInfo.getFields()) {
-			final String fieldName = mTableInfo.getColumnName(field);
-			Class<?> fieldType = field.getType();
-
-			field.setAccessible(true);
-
-			try {
-				Object value = field.get(this);
-
-				if (value != null) {
-					final TypeSerializer typeSerializer = getCache().getParserForType(fieldType);
-					if (typeSerializer != null) {
-						// serialize data
-						value = typeSerializer.serialize(value);
-						// set new object type
-						if (value != null) {
-							fieldType = value.getClass();
-							// check that the serializer returned what it promised
-							if (!fieldType.equals(typeSerializer.getSerializedType())) {
-								Log.w(String.format("TypeSerializer returned wrong type: expected a %s but got a %s",
-										typeSerializer.getSerializedType(), fieldType));
-							}
-						}
-					}
-				}
+		final long start = System.nanoTime();
 
-				// TODO: Find a smarter way to do this? This if block is necessary because we
-				// can't know the type until runtime.
-				if (value == null) {
-					values.putNull(fieldName);
-				}
-				else if (fieldType.equals(Byte.class) || fieldType.equals(byte.class)) {
-					values.put(fieldName, (Byte) value);
-				}
-				else if (fieldType.equals(Short.class) || fieldType.equals(short.class)) {
-					values.put(fieldName, (Short) value);
-				}
-				else if (fieldType.equals(Integer.class) || fieldType.equals(int.class)) {
-					values.put(fieldName, (Integer) value);
-				}
-				else if (fieldType.equals(Long.class) || fieldType.equals(long.class)) {
-					values.put(fieldName, (Long) value);
-				}
-				else if (fieldType.equals(Float.class) || fieldType.equals(float.class)) {
-					values.put(fieldName, (Float) value);
+		if (mId == null) {
+			mId = db.insertOrThrow(mTableInfo.getTableName(), null, values);
+			reportInsert(getCache(), mTableInfo, values, start);
+			values.put(idName, mId);
+		}
+		else if (mSnapshot != null) {
+			final ContentValues changes = new ContentValues(values);
+			removeUnchanged(changes);
+
+			if (changes.size() == 0) {
+				return mId;
+			}
+
+			final int count = db.update(mTableInfo.getTableName(), changes, idName+"=" + mId, null);
+			reportUpdate(getCache(), mTableInfo, changes, mId, start, count);
+		}
+		else {
+			final int count = db.update(mTableInfo.getTableName(), values, idName+"=" + mId, null);
+			reportUpdate(getCache(), mTableInfo, values, mId, start, count);
+		}
+
+		if (mTableInfo.isTrackingChanges()) {
+			mSnapshot = values;
+		}
+
+		if (mLoadedColumns == null) {
+			getCache().addEntity(this);
+		}
+
+		getCache().getContext().getContentResolver()
+				.notifyChange(ContentProvider.createUri(mTableInfo.getType(), mId), null);
+		return mId;
+	}
+
+	public final Future<Long> saveAsync() {
+		return saveAsync(null);
+	}
+
+	/**
+	 * Saves the model on the writer thread of its cache.
+	 *
+	 * @param callback Notified on the main thread with the id, can be null.
+	 */
+	public final Future<Long> saveAsync(AsyncCallback<Long> callback) {
+		return getCache().getExecutor().write(new Callable<Long>() {
+			@Override
+			public Long call() {
+				return save();
+			}
+		}, callback);
+	}
+
+	/**
+	 * Deletes the model on the writer thread of its cache.
+	 *
+	 * @param callback Notified on the main thread with the number of deleted rows, can be null.
+	 */
+	public final Future<Integer> deleteAsync(AsyncCallback<Integer> callback) {
+		return getCache().getExecutor().write(new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return delete();
+			}
+		}, callback);
+	}
+
+	/**
+	 * @return The serialized values of the loaded columns, keyed by column name.
+	 */
+	public final ContentValues toContentValues() {
+		return getColumnValues();
+	}
+
+	/**
+	 * @return Whether the model was loaded by a projection, leaving some columns unloaded.
+	 */
+	public final boolean isPartial() {
+		return mLoadedColumns != null;
+	}
+
+	/**
+	 * Allows saving a partial model. Only the loaded columns are written.
+	 */
+	public final void allowPartialSave() {
+		mPartialSaveAllowed = true;
+	}
+
+	/**
+	 * @return False if the table tracks changes and no column changed since the model was
+	 * loaded or saved, true otherwise.
+	 */
+	public final boolean hasChanges() {
+		if (mSnapshot == null) {
+			return true;
+		}
+
+		final ContentValues values = getColumnValues();
+		removeUnchanged(values);
+
+		return values.size() > 0;
+	}
+
+	/**
+	 * Inserts the model, or updates the row it conflicts with on the given unique columns.
+	 * Without columns, the first unique group declared with <code>uniqueGroups</code> is used.
+	 *
+	 * @return The id of the inserted or updated row, also set on the model.
+	 */
+	public Long upsert(String... conflictColumns) {
+		upsertAll(getCache(), Collections.singletonList(this), conflictColumns);
+		return mId;
+	}
+
+	/**
+	 * Runs {@link #saveAll(Cache, Collection)} on the writer thread of the cache.
+	 *
+	 * @param callback Notified on the main thread once saved, can be null.
+	 */
+	public static Future<Void> saveAllAsync(final Cache cache, final Collection<? extends Model> models,
+			AsyncCallback<Void> callback) {
+
+		return cache.getExecutor().write(new Callable<Void>() {
+			@Override
+			public Void call() {
+				saveAll(cache, models);
+				return null;
+			}
+		}, callback);
+	}
+
+	public static long[] upsertAll(Collection<? extends Model> models, String... conflictColumns) {
+		return upsertAll(ActiveAndroid.getCache(), models, conflictColumns);
+	}
+
+	/**
+	 * Upserts the models in a single transaction, like {@link #upsert(String...)}, notifying
+	 * observers once per table.
+	 *
+	 * @return The ids of the rows, in the iteration order of the models.
+	 */
+	public static long[] upsertAll(Cache cache, Collection<? extends Model> models, String... conflictColumns) {
+		final long[] ids = new long[models.size()];
+		if (ids.length == 0) {
+			return ids;
+		}
+
+		final SQLiteDatabase db = cache.openDatabase();
+		final Map<TableInfo, UpsertStatement> statements = new HashMap<TableInfo, UpsertStatement>();
+		final Set<Class<? extends Model>> types = new LinkedHashSet<Class<? extends Model>>();
+
+		db.beginTransaction();
+		try {
+			int i = 0;
+			for (Model model : models) {
+				final TableInfo tableInfo = model.mTableInfo;
+
+				UpsertStatement statement = statements.get(tableInfo);
+				if (statement == null) {
+					statement = new UpsertStatement(db, tableInfo, conflictColumns);
+					statements.put(tableInfo, statement);
 				}
-				else if (fieldType.equals(Double.class) || fieldType.equals(double.class)) {
-					values.put(fieldName, (Double) value);
+
+				model.checkPartialSave();
+
+				if (model.mLoadedColumns != null) {
+					// The compiled statements write every column, only write the loaded ones.
+					ids[i++] = statement.execute(model, model.getColumnValues());
 				}
-				else if (fieldType.equals(Boolean.class) || fieldType.equals(boolean.class)) {
-					values.put(fieldName, (Boolean) value);
+				else {
+					ids[i++] = statement.execute(model);
 				}
-				else if (fieldType.equals(Character.class) || fieldType.equals(char.class)) {
-					values.put(fieldName, value.toString());
+				types.add(tableInfo.getType());
+			}
+
+			db.setTransactionSuccessful();
+		}
+		finally {
+			db.endTransaction();
+
+			for (UpsertStatement statement : statements.values()) {
+				statement.close();
+			}
+		}
+
+		int i = 0;
+		for (Model model : models) {
+			if (model.mId != null && model.mId != ids[i]) {
+				cache.removeEntity(model);
+			}
+
+			model.mId = ids[i++];
+			if (model.mTableInfo.isTrackingChanges()) {
+				model.takeSnapshot();
+			}
+			cache.addEntity(model);
+		}
+
+		for (Class<? extends Model> type : types) {
+			cache.getContext().getContentResolver().notifyChange(ContentProvider.createUri(type, null), null);
+		}
+
+		return ids;
+	}
+
+	// Convenience methods
+
+	public static void saveAll(Collection<? extends Model> models) {
+		saveAll(ActiveAndroid.getCache(), models);
+	}
+
+	/**
+	 * Saves the models in a single transaction, reusing one compiled INSERT and UPDATE
+	 * statement per table. Observers are notified once per table after the transaction
+	 * succeeds. If it fails, the ids assigned to new models are reset.
+	 */
+	public static void saveAll(Cache cache, Collection<? extends Model> models) {
+		if (models.isEmpty()) {
+			return;
+		}
+
+		final SQLiteDatabase db = cache.openDatabase();
+		final Map<TableInfo, SQLiteStatement> inserts = new HashMap<TableInfo, SQLiteStatement>();
+		final Map<TableInfo, SQLiteStatement> updates = new HashMap<TableInfo, SQLiteStatement>();
+		final Set<Class<? extends Model>> types = new LinkedHashSet<Class<? extends Model>>();
+		final List<Model> inserted = new ArrayList<Model>();
+		boolean successful = false;
+
+		db.beginTransaction();
+		try {
+			for (Model model : models) {
+				final TableInfo tableInfo = model.mTableInfo;
+				final ColumnBinder[] binders = tableInfo.getValueBinders();
+
+				model.checkPartialSave();
+
+				final long start = System.nanoTime();
+
+				if (model.mLoadedColumns != null) {
+					// The compiled statements write every column, only write the loaded ones.
+					final ContentValues values = model.getColumnValues();
+
+					if (model.mId == null) {
+						model.mId = db.insertOrThrow(tableInfo.getTableName(), null, values);
+						reportInsert(cache, tableInfo, values, start);
+						inserted.add(model);
+					}
+					else {
+						final int count = db.update(tableInfo.getTableName(), values,
+								tableInfo.getIdName() + "=" + model.mId, null);
+						reportUpdate(cache, tableInfo, values, model.mId, start, count);
+					}
 				}
-				else if (fieldType.equals(String.class)) {
-					values.put(fieldName, value.toString());
+				else if (model.mId == null) {
+					SQLiteStatement statement = inserts.get(tableInfo);
+					if (statement == null) {
+						statement = db.compileStatement(tableInfo.getInsertSql());
+						inserts.put(tableInfo, statement);
+					}
+
+					bindValues(model, binders, statement);
+
+					final long id = statement.executeInsert();
+					if (id == -1) {
+						throw new SQLException("Error inserting " + model);
+					}
+
+					model.mId = id;
+					inserted.add(model);
+					if (cache.hasQueryListeners()) {
+						cache.reportQuery(tableInfo.getInsertSql(), getBindArgs(model, binders, null), start, 1);
+					}
 				}
-				else if (fieldType.equals(Byte[].class) || fieldType.equals(byte[].class)) {
-					values.put(fieldName, (byte[]) value);
+				else if (tableInfo.getUpdateSql() != null && model.hasChanges()) {
+					SQLiteStatement statement = updates.get(tableInfo);
+					if (statement == null) {
+						statement = db.compileStatement(tableInfo.getUpdateSql());
+						updates.put(tableInfo, statement);
+					}
+
+					bindValues(model, binders, statement);
+					statement.bindLong(binders.length + 1, model.mId);
+					final int count = SQLiteUtils.executeUpdateDelete(db, statement);
+					if (cache.hasQueryListeners()) {
+						cache.reportQuery(tableInfo.getUpdateSql(), getBindArgs(model, binders, model.mId), start, count);
+					}
 				}
-				else if (ReflectionUtils.isModel(fieldType)) {
-					values.put(fieldName, ((Model) value).getId());
+
+				types.add(tableInfo.getType());
+			}
+
+			db.setTransactionSuccessful();
+			successful = true;
+
+			for (Model model : models) {
+				if (model.mTableInfo.isTrackingChanges()) {
+					model.takeSnapshot();
 				}
-				else if (ReflectionUtils.isSubclassOf(fieldType, Enum.class)) {
-					values.put(fieldName, ((Enum<?>) value).name());
+				if (model.mLoadedColumns == null) {
+					cache.addEntity(model);
 				}
 			}
-			catch (IllegalArgumentException e) {
-				Log.e(e.getClass().getName(), e);
+		}
+		finally {
+			db.endTransaction();
+
+			for (SQLiteStatement statement : inserts.values()) {
+				statement.close();
 			}
-			catch (IllegalAccessException e) {
-				Log.e(e.getClass().getName(), e);
+			for (SQLiteStatement statement : updates.values()) {
+				statement.close();
 			}
-		}
 
-		if (mId == null) {
-			mId = db.insertOrThrow(mTableInfo.getTableName(), null, values);
-		}
-		else {
-			db.update(mTableInfo.getTableName(), values, idName+"=" + mId, null);
+			if (!successful) {
+				for (Model model : inserted) {
+					model.mId = null;
+				}
+			}
 		}
 
-		getCache().getContext().getContentResolver()
-				.notifyChange(ContentProvider.createUri(mTableInfo.getType(), mId), null);
-		return mId;
+		for (Class<? extends Model> type : types) {
+			cache.getContext().getContentResolver().notifyChange(ContentProvider.createUri(type, null), null);
+		}
 	}
 
-	// Convenience methods
-
 	public static void delete(Class<? extends Model> type, long id) {
 		delete(ActiveAndroid.getCache(), type, id);
 	}
@@ -186,13 +449,34 @@ public abstract class Model {
 		new Delete(cache).from(type).where(tableInfo.getIdName() + "=?", id).execute();
 	}
 
+	public static void deleteAll(Class<? extends Model> type, long[] ids) {
+		deleteAll(ActiveAndroid.getCache(), type, ids);
+	}
+
+	/**
+	 * Deletes the rows with the given ids in chunked <code>IN (...)</code> statements inside a
+	 * single transaction, notifying observers of the table once.
+	 */
+	public static void deleteAll(Cache cache, Class<? extends Model> type, long[] ids) {
+		if (ids.length == 0) {
+			return;
+		}
+
+		new Delete(cache).from(type).whereIdIn(ids).execute();
+	}
+
 	public static <T extends Model> T load(Class<T> type, long id) {
 		return load(ActiveAndroid.getCache(), type, id);
 	}
 
 	public static <T extends Model> T load(Cache cache, Class<T> type, long id) {
+		final T entity = (T) cache.getEntity(type, id);
+		if (entity != null) {
+			return entity;
+		}
+
 		TableInfo tableInfo = cache.getTableInfo(type);
-		return (T) new Select().from(type).where(tableInfo.getIdName()+"=?", id).executeSingle();
+		return (T) new Select(cache).from(type).where(tableInfo.getIdName()+"=?", id).executeSingle();
 	}
 
 	public static void truncate(Class<? extends Model> type){
@@ -204,105 +488,90 @@ public abstract class Model {
         // Not the cleanest way, but...
         ActiveAndroid.execSQL("delete from "+tableInfo.getTableName()+";");
         ActiveAndroid.execSQL("delete from sqlite_sequence where name='"+tableInfo.getTableName()+"';");
+        cache.removeEntities(type);
     }
 
 	// Model population
 
 	public final void loadFromCursor(Cursor cursor) {
-        /**
-         * Obtain the columns ordered to fix issue #106 (https://github.com/pardom/ActiveAndroid/issues/106)
-         * when the cursor have multiple columns with same name obtained from join tables.
-         */
-        List<String> columnsOrdered = new ArrayList<String>(Arrays.asList(cursor.getColumnNames()));
-		for (Field field : mTableInfo.getFields()) {
-			final String fieldName = mTableInfo.getColumnName(field);
-			Class<?> fieldType = field.getType();
-			final int columnIndex = columnsOrdered.indexOf(fieldName);
+		loadFromCursor(cursor, mTableInfo.getColumnIndexes(cursor));
+	}
 
-			if (columnIndex < 0) {
-				continue;
-			}
+	/**
+	 * Loads the current row using column indexes resolved once per cursor with
+	 * {@link TableInfo#getColumnIndexes(Cursor)}.
+	 */
+	public final void loadFromCursor(Cursor cursor, int[] columnIndexes) {
+		loadFromCursor(cursor, columnIndexes, null);
+	}
 
-			field.setAccessible(true);
+	/**
+	 * Loads the current row, leaving the foreign keys to the resolver so they can be
+	 * loaded in bulk once every row of the cursor has been read.
+	 */
+	public final void loadFromCursor(Cursor cursor, int[] columnIndexes, ForeignKeyResolver resolver) {
+		loadFromCursor(cursor, columnIndexes, resolver, false);
+	}
 
-			try {
-				boolean columnIsNull = cursor.isNull(columnIndex);
-				TypeSerializer typeSerializer = getCache().getParserForType(fieldType);
-				Object value = null;
+	/**
+	 * @param projection Mark the model partial when the cursor misses some of its columns,
+	 * otherwise the missing columns are simply left untouched.
+	 */
+	public final void loadFromCursor(Cursor cursor, int[] columnIndexes, ForeignKeyResolver resolver,
+			boolean projection) {
+		final ColumnBinder[] binders = mTableInfo.getColumnBinders();
+		final boolean loaded = mId != null;
+		boolean[] loadedColumns = null;
 
-				if (typeSerializer != null) {
-					fieldType = typeSerializer.getSerializedType();
-				}
+		for (int i = 0; i < binders.length; i++) {
+			final int columnIndex = columnIndexes[i];
 
-				// TODO: Find a smarter way to do this? This if block is necessary because we
-				// can't know the type until runtime.
-				if (columnIsNull) {
-					field = null;
-				}
-				else if (fieldType.equals(Byte.class) || fieldType.equals(byte.class)) {
-					value = cursor.getInt(columnIndex);
-				}
-				else if (fieldType.equals(Short.class) || fieldType.equals(short.class)) {
-					value = cursor.getInt(columnIndex);
-				}
-				else if (fieldType.equals(Integer.class) || fieldType.equals(int.class)) {
-					value = cursor.getInt(columnIndex);
-				}
-				else if (fieldType.equals(Long.class) || fieldType.equals(long.class)) {
-					value = cursor.getLong(columnIndex);
-				}
-				else if (fieldType.equals(Float.class) || fieldType.equals(float.class)) {
-					value = cursor.getFloat(columnIndex);
-				}
-				else if (fieldType.equals(Double.class) || fieldType.equals(double.class)) {
-					value = cursor.getDouble(columnIndex);
-				}
-				else if (fieldType.equals(Boolean.class) || fieldType.equals(boolean.class)) {
-					value = cursor.getInt(columnIndex) != 0;
-				}
-				else if (fieldType.equals(Character.class) || fieldType.equals(char.class)) {
-					value = cursor.getString(columnIndex).charAt(0);
-				}
-				else if (fieldType.equals(String.class)) {
-					value = cursor.getString(columnIndex);
-				}
-				else if (fieldType.equals(Byte[].class) || fieldType.equals(byte[].class)) {
-					value = cursor.getBlob(columnIndex);
+			if (columnIndex < 0) {
+				if (projection && loadedColumns == null) {
+					loadedColumns = new boolean[binders.length];
+					Arrays.fill(loadedColumns, 0, i, true);
 				}
-				else if (ReflectionUtils.isModel(fieldType)) {
-					final long entityId = cursor.getLong(columnIndex);
-					final Class<? extends Model> entityType = (Class<? extends Model>) fieldType;
+				continue;
+			}
 
-					Model entity = new Select().from(entityType).where(idName+"=?", entityId).executeSingle();
-					value = entity;
-				}
-				else if (ReflectionUtils.isSubclassOf(fieldType, Enum.class)) {
-					@SuppressWarnings("rawtypes")
-					final Class<? extends Enum> enumType = (Class<? extends Enum>) fieldType;
-					value = Enum.valueOf(enumType, cursor.getString(columnIndex));
-				}
+			if (loadedColumns != null) {
+				loadedColumns[i] = true;
+			}
 
-				// Use a deserializer if one is available
-				if (typeSerializer != null && !columnIsNull) {
-					value = typeSerializer.deserialize(value);
-				}
+			binders[i].load(this, cursor, columnIndex, resolver);
+		}
 
-				// Set the field value
-				if (value != null) {
-					field.set(this, value);
-				}
-			}
-			catch (IllegalArgumentException e) {
-				Log.e(e.getClass().getName(), e);
-			}
-			catch (IllegalAccessException e) {
-				Log.e(e.getClass().getName(), e);
+		// Models already loaded keep what they know about the unselected columns.
+		if (loadedColumns == null) {
+			mLoadedColumns = null;
+		}
+		else if (!loaded) {
+			mLoadedColumns = loadedColumns;
+		}
+
+		if (mTableInfo.isTrackingChanges()) {
+			if (resolver != null) {
+				resolver.addSnapshot(this);
 			}
-			catch (SecurityException e) {
-				Log.e(e.getClass().getName(), e);
+			else {
+				takeSnapshot();
 			}
 		}
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PACKAGE PRIVATE METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	final void takeSnapshot() {
+		mSnapshot = getColumnValues();
+	}
 
+	static void bindValues(Model model, ColumnBinder[] binders, SQLiteStatement statement) {
+		statement.clearBindings();
+		for (int i = 0; i < binders.length; i++) {
+			binders[i].bind(model, statement, i + 1);
+		}
 	}
 
 	//////////////////////////////////////////////////////////////////////////////////////
@@ -321,6 +590,94 @@ public abstract class Model {
 	// PRIVATE METHODS
 	//////////////////////////////////////////////////////////////////////////////////////
 
+	private TableInfo takeTableInfo() {
+		final TableInfo tableInfo = sPendingTableInfo.get();
+		if (tableInfo != null && tableInfo.getType() == getClass()) {
+			sPendingTableInfo.remove();
+			return tableInfo;
+		}
+
+		return getCache().getTableInfo(getClass());
+	}
+
+	/**
+	 * @return The values bound by {@link #bindValues(Model, ColumnBinder[], SQLiteStatement)},
+	 * followed by the id of an update.
+	 */
+	private static Object[] getBindArgs(Model model, ColumnBinder[] binders, Long id) {
+		final ContentValues values = model.getColumnValues();
+		final Object[] args = new Object[id != null ? binders.length + 1 : binders.length];
+		for (int i = 0; i < binders.length; i++) {
+			args[i] = values.get(binders[i].getName());
+		}
+		if (id != null) {
+			args[binders.length] = id;
+		}
+
+		return args;
+	}
+
+	private static void reportInsert(Cache cache, TableInfo tableInfo, ContentValues values, long start) {
+		if (cache.hasQueryListeners()) {
+			cache.reportQuery(SQLiteUtils.toInsertSql(tableInfo.getTableName(), values),
+					SQLiteUtils.toBindArgs(values, null), start, 1);
+		}
+	}
+
+	private static void reportUpdate(Cache cache, TableInfo tableInfo, ContentValues values, long id, long start,
+			int count) {
+
+		if (cache.hasQueryListeners()) {
+			cache.reportQuery(SQLiteUtils.toUpdateSql(tableInfo.getTableName(), values, tableInfo.getIdName() + "=" + id),
+					SQLiteUtils.toBindArgs(values, null), start, count);
+		}
+	}
+
+	private ContentValues getColumnValues() {
+		final ContentValues values = new ContentValues();
+		final ColumnBinder[] binders = mTableInfo.getColumnBinders();
+
+		for (int i = 0; i < binders.length; i++) {
+			if (mLoadedColumns == null || mLoadedColumns[i]) {
+				binders[i].save(this, values);
+			}
+		}
+
+		return values;
+	}
+
+	private void checkPartialSave() {
+		if (mLoadedColumns != null && !mPartialSaveAllowed) {
+			throw new IllegalStateException("Can't save partially loaded " + this
+					+ ", call allowPartialSave() to write the loaded columns only.");
+		}
+	}
+
+	private void removeUnchanged(ContentValues values) {
+		// ContentValues.keySet() is API 11, valueSet() works everywhere.
+		for (Map.Entry<String, Object> entry : new ArrayList<Map.Entry<String, Object>>(values.valueSet())) {
+			final String column = entry.getKey();
+			if (!mSnapshot.containsKey(column)) {
+				continue;
+			}
+
+			final Object value = entry.getValue();
+			final Object snapshotValue = mSnapshot.get(column);
+			final boolean unchanged;
+
+			if (value instanceof byte[] && snapshotValue instanceof byte[]) {
+				unchanged = Arrays.equals((byte[]) value, (byte[]) snapshotValue);
+			}
+			else {
+				unchanged = value == null ? snapshotValue == null : value.equals(snapshotValue);
+			}
+
+			if (unchanged) {
+				values.remove(column);
+			}
+		}
+	}
+
 	public Cache getCache(){
 		if(mCache == null) {
 			return ActiveAndroid.getCache();
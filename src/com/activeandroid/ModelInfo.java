@@ -67,6 +67,11 @@ final class ModelInfo {
 			}
 		}
 
+		// Serializers are discovered alongside the models, so resolve the columns last.
+		for (TableInfo tableInfo : mTableInfos.values()) {
+			tableInfo.createColumnBinders(this);
+		}
+
 		Log.i("ModelInfo loaded.");
 	}
 
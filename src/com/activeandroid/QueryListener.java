@@ -0,0 +1,36 @@
+package com.activeandroid;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Called after every statement run through a {@link Cache}, on the thread that ran it.
+ * Register with {@link Cache#addQueryListener(QueryListener)}. Listeners should return
+ * quickly, they delay the caller.
+ *
+ * @see com.activeandroid.util.SlowQueryLogger
+ */
+public interface QueryListener {
+	/**
+	 * @param sql The statement. Writes of content values are described as the equivalent SQL.
+	 * @param bindArgs The arguments, or null when there are none or they were bound straight
+	 * from a model.
+	 * @param durationNanos The time the statement took, including reading its results.
+	 * @param rowCount The number of rows returned or changed, or -1 if unknown.
+	 * @param thread The thread that ran the statement.
+	 */
+	public void onQuery(String sql, Object[] bindArgs, long durationNanos, int rowCount, Thread thread);
+}
@@ -0,0 +1,111 @@
+package com.activeandroid;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import android.database.sqlite.SQLiteStatement;
+import android.support.v4.util.LruCache;
+
+/**
+ * Compiled statements of a {@link Cache}, keyed by SQL. A statement is taken out of the
+ * cache while in use, so threads never share one and eviction never closes a statement
+ * being executed.
+ */
+public final class StatementCache {
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PUBLIC CONSTANTS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	public static final int DEFAULT_SIZE = 32;
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE MEMBERS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private final Cache mCache;
+	private final LruCache<String, SQLiteStatement> mStatements;
+	private final Map<SQLiteStatement, Integer> mAcquired = new IdentityHashMap<SQLiteStatement, Integer>();
+	private int mGeneration;
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTORS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	StatementCache(Cache cache, int maxSize) {
+		mCache = cache;
+		mStatements = new LruCache<String, SQLiteStatement>(maxSize) {
+			@Override
+			protected void entryRemoved(boolean evicted, String sql, SQLiteStatement oldValue, SQLiteStatement newValue) {
+				// remove() hands the statement out to acquire(), only close dropped ones.
+				if (evicted || newValue != null) {
+					oldValue.close();
+				}
+			}
+		};
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PUBLIC METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Takes the statement compiled for the SQL out of the cache, or compiles it. Hand it
+	 * back with {@link #release(String, SQLiteStatement)} once executed.
+	 */
+	public SQLiteStatement acquire(String sql) {
+		SQLiteStatement statement;
+		final int generation;
+		synchronized (this) {
+			statement = mStatements.remove(sql);
+			generation = mGeneration;
+		}
+
+		if (statement == null) {
+			// Compiled outside the lock, opening the database takes the lock of the cache.
+			statement = mCache.openDatabase().compileStatement(sql);
+		}
+
+		synchronized (this) {
+			mAcquired.put(statement, generation);
+		}
+
+		return statement;
+	}
+
+	public synchronized void release(String sql, SQLiteStatement statement) {
+		final Integer generation = mAcquired.remove(statement);
+
+		// Acquired before clear(), it belongs to a database that may have been closed since.
+		if (generation == null || generation != mGeneration) {
+			statement.close();
+			return;
+		}
+
+		statement.clearBindings();
+		mStatements.put(sql, statement);
+	}
+
+	/**
+	 * Closes every cached statement, statements in use are closed when released.
+	 */
+	public synchronized void clear() {
+		mGeneration++;
+		mStatements.evictAll();
+	}
+}
@@ -0,0 +1,92 @@
+package com.activeandroid;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.lang.reflect.InvocationTargetException;
+
+import com.activeandroid.util.Log;
+
+/**
+ * Reflection-free access to the columns of a model. Implementations are generated at
+ * compile time by the ActiveAndroid annotation processor as
+ * <code>&lt;model binary name&gt;$$TableAdapter</code> in the package of the model.
+ * When no adapter was generated the model is persisted through reflection.
+ */
+public abstract class TableAdapter<T extends Model> {
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PUBLIC CONSTANTS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	public static final String SUFFIX = "$$TableAdapter";
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PUBLIC METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Loads the generated adapter of a model, if any.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends Model> TableAdapter<T> forType(Class<T> type) {
+		try {
+			final Class<?> adapterClass = Class.forName(type.getName() + SUFFIX, true, type.getClassLoader());
+			return (TableAdapter<T>) adapterClass.getDeclaredConstructor().newInstance();
+		}
+		catch (ClassNotFoundException e) {
+			return null;
+		}
+		catch (NoSuchMethodException e) {
+			Log.e("Couldn't instantiate TableAdapter.", e);
+		}
+		catch (InvocationTargetException e) {
+			Log.e("Couldn't instantiate TableAdapter.", e);
+		}
+		catch (InstantiationException e) {
+			Log.e("Couldn't instantiate TableAdapter.", e);
+		}
+		catch (IllegalAccessException e) {
+			Log.e("IllegalAccessException", e);
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return The names of the fields this adapter reads and writes, by field index.
+	 */
+	public abstract String[] getFieldNames();
+
+	/**
+	 * @return The value of the field at the given index.
+	 */
+	public abstract Object getValue(T model, int fieldIndex);
+
+	/**
+	 * Sets the value of the field at the given index.
+	 */
+	public abstract void setValue(T model, int fieldIndex, Object value);
+
+	/**
+	 * Creates a new instance of the model for the given cache.
+	 */
+	public abstract T newInstance(Cache cache);
+
+	/**
+	 * @return The CREATE TABLE statement, or null if it has to be built at runtime.
+	 */
+	public abstract String createTableDefinition();
+}
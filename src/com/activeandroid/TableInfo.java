@@ -16,7 +16,11 @@ package com.activeandroid;
  * limitations under the License.
  */
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -24,12 +28,14 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import android.database.Cursor;
 import android.text.TextUtils;
 import android.util.Log;
 
 import com.activeandroid.annotation.Column;
 import com.activeandroid.annotation.Table;
 import com.activeandroid.util.ReflectionUtils;
+import com.activeandroid.util.SQLiteUtils;
 
 public final class TableInfo {
 	//////////////////////////////////////////////////////////////////////////////////////
@@ -39,8 +45,21 @@ public final class TableInfo {
 	private Class<? extends Model> mType;
 	private String mTableName;
 	private String mIdName = Table.DEFAULT_ID_NAME;
+	private boolean mTrackChanges;
 
 	private Map<Field, String> mColumnNames = new LinkedHashMap<Field, String>();
+	private Map<String, List<String>> mUniqueGroups = new LinkedHashMap<String, List<String>>();
+	private List<String> mUniqueColumns = new ArrayList<String>();
+	private Field mIdField;
+	private ColumnBinder[] mColumnBinders;
+	private ColumnBinder[] mValueBinders;
+	private int mIdBinderIndex = -1;
+	private TableAdapter<? extends Model> mTableAdapter;
+	private Constructor<? extends Model> mCacheConstructor;
+	private Constructor<? extends Model> mDefaultConstructor;
+
+	private String mInsertSql;
+	private String mUpdateSql;
 
 	//////////////////////////////////////////////////////////////////////////////////////
 	// CONSTRUCTORS
@@ -48,20 +67,22 @@ public final class TableInfo {
 
 	public TableInfo(Class<? extends Model> type) {
 		mType = type;
+		mTableAdapter = TableAdapter.forType(type);
 
 		final Table tableAnnotation = type.getAnnotation(Table.class);
 
         if (tableAnnotation != null) {
 			mTableName = tableAnnotation.name();
 			mIdName = tableAnnotation.id();
+			mTrackChanges = tableAnnotation.trackChanges();
 		}
 		else {
 			mTableName = type.getSimpleName();
         }
 
         // Manually add the id column since it is not declared like the other columns.
-        Field idField = getIdField(type);
-        mColumnNames.put(idField, mIdName);
+        mIdField = getIdField(type);
+        mColumnNames.put(mIdField, mIdName);
 
         List<Field> fields = new LinkedList<Field>(ReflectionUtils.getDeclaredColumnFields(type));
         Collections.reverse(fields);
@@ -75,6 +96,7 @@ public final class TableInfo {
                 }
 
                 mColumnNames.put(field, columnName);
+                addUniqueColumn(columnAnnotation, columnName);
             }
         }
 
@@ -104,6 +126,283 @@ public final class TableInfo {
 		return mColumnNames.get(field);
 	}
 
+	/**
+	 * Gets the columns of each <code>uniqueGroups</code> declared by the columns, by group.
+	 */
+	public Map<String, List<String>> getUniqueGroups() {
+		return mUniqueGroups;
+	}
+
+	/**
+	 * @return The columns of the first declared unique group, or else the first unique
+	 * column, or null if the table has no unique constraint besides its id.
+	 */
+	public String[] getDefaultConflictColumns() {
+		if (!mUniqueGroups.isEmpty()) {
+			final List<String> group = mUniqueGroups.values().iterator().next();
+			return group.toArray(new String[group.size()]);
+		}
+
+		if (!mUniqueColumns.isEmpty()) {
+			return new String[] { mUniqueColumns.get(0) };
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return The binder of the given column, or null if the table doesn't map it. Names are
+	 * matched ignoring case, like SQLite does.
+	 */
+	public ColumnBinder getColumnBinder(String columnName) {
+		for (ColumnBinder binder : mColumnBinders) {
+			if (binder.getName().equalsIgnoreCase(columnName)) {
+				return binder;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Creates a model to load a row into, through the generated adapter or the constructor
+	 * resolved when the table was registered. The model is handed this TableInfo instead of
+	 * looking it up again.
+	 */
+	public Model newInstance(Cache cache) {
+		Model.sPendingTableInfo.set(this);
+		try {
+			if (mTableAdapter != null) {
+				return mTableAdapter.newInstance(cache);
+			}
+			else if (mCacheConstructor != null) {
+				return mCacheConstructor.newInstance(cache);
+			}
+			else if (mDefaultConstructor != null) {
+				return mDefaultConstructor.newInstance();
+			}
+		}
+		catch (InstantiationException e) {
+			throw new RuntimeException("Couldn't instantiate " + mType.getName(), e);
+		}
+		catch (IllegalAccessException e) {
+			throw new RuntimeException("Couldn't instantiate " + mType.getName(), e);
+		}
+		catch (InvocationTargetException e) {
+			throw new RuntimeException("Couldn't instantiate " + mType.getName(), e);
+		}
+		finally {
+			Model.sPendingTableInfo.remove();
+		}
+
+		throw new RuntimeException(
+				"Your model " + mType.getName() + " does not define a default " +
+						"constructor. Or a constructor with a Cache as a parameter. " +
+						"Either of these contructors is required for " +
+						"now in ActiveAndroid models, as the process to " +
+						"populate the ORM model is : " +
+						"1. instantiate the model with the given or the default Cache object" +
+						"2. populate fields"
+		);
+	}
+
+	/**
+	 * Gets the generated adapter of the model, or null if it is persisted through reflection.
+	 */
+	public TableAdapter<? extends Model> getTableAdapter() {
+		return mTableAdapter;
+	}
+
+	/**
+	 * Gets the precompiled binders of the mapped columns, in the order of {@link #getFields()}.
+	 */
+	public ColumnBinder[] getColumnBinders() {
+		return mColumnBinders;
+	}
+
+	/**
+	 * @return Whether models of this table only write the columns changed since they were
+	 * loaded or saved.
+	 */
+	public boolean isTrackingChanges() {
+		return mTrackChanges;
+	}
+
+	/**
+	 * Gets the column binders without the id column, in the order of the arguments of
+	 * {@link #getInsertSql()} and {@link #getUpdateSql()}.
+	 */
+	public ColumnBinder[] getValueBinders() {
+		return mValueBinders;
+	}
+
+	/**
+	 * @return The cursor index of the id column picked by {@link #getColumnIndexes(Cursor)},
+	 * or -1 if the cursor doesn't have it.
+	 */
+	public int getIdColumnIndex(int[] columnIndexes) {
+		return mIdBinderIndex >= 0 ? columnIndexes[mIdBinderIndex] : -1;
+	}
+
+	/**
+	 * Gets the INSERT statement binding every value column, in the order of
+	 * {@link #getValueBinders()}.
+	 */
+	public String getInsertSql() {
+		return mInsertSql;
+	}
+
+	/**
+	 * Gets the UPDATE statement binding every value column followed by the id, or null if
+	 * the table has no value columns.
+	 */
+	public String getUpdateSql() {
+		return mUpdateSql;
+	}
+
+	/**
+	 * Resolves the cursor column of every column binder, or -1 if the cursor doesn't contain it.
+	 */
+	public int[] getColumnIndexes(Cursor cursor) {
+		/**
+		 * Obtain the columns ordered to fix issue #106 (https://github.com/pardom/ActiveAndroid/issues/106)
+		 * when the cursor have multiple columns with same name obtained from join tables.
+		 */
+		final List<String> columnsOrdered = Arrays.asList(cursor.getColumnNames());
+		final int[] columnIndexes = new int[mColumnBinders.length];
+
+		for (int i = 0; i < mColumnBinders.length; i++) {
+			columnIndexes[i] = columnsOrdered.indexOf(mColumnBinders[i].getName());
+		}
+
+		return columnIndexes;
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PACKAGE PRIVATE METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	void createColumnBinders(ModelInfo modelInfo) {
+		final List<ColumnBinder> binders = new ArrayList<ColumnBinder>(mColumnNames.size());
+		final List<String> adapterFields = mTableAdapter != null
+				? Arrays.asList(mTableAdapter.getFieldNames()) : null;
+
+		if (adapterFields != null && !adapterFields.containsAll(getFieldNames())) {
+			// The adapter was generated from another version of the model, don't trust it.
+			Log.w("ActiveAndroid", "Ignoring stale TableAdapter of " + mType.getName());
+			mTableAdapter = null;
+		}
+
+		if (mTableAdapter == null) {
+			resolveConstructors();
+		}
+
+		for (Map.Entry<Field, String> entry : mColumnNames.entrySet()) {
+			final Field field = entry.getKey();
+			final ColumnBinder binder = ColumnBinder.create(field, entry.getValue(),
+					modelInfo.getTypeSerializer(field.getType()));
+
+			if (binder != null) {
+				if (mTableAdapter != null) {
+					binder.setTableAdapter(mTableAdapter, adapterFields.indexOf(field.getName()));
+				}
+				binders.add(binder);
+			}
+		}
+
+		mColumnBinders = binders.toArray(new ColumnBinder[binders.size()]);
+
+		final List<ColumnBinder> valueBinders = new ArrayList<ColumnBinder>(binders.size());
+		for (int i = 0; i < mColumnBinders.length; i++) {
+			if (mColumnBinders[i].getField().equals(mIdField)) {
+				mIdBinderIndex = i;
+			}
+			else {
+				valueBinders.add(mColumnBinders[i]);
+			}
+		}
+		mValueBinders = valueBinders.toArray(new ColumnBinder[valueBinders.size()]);
+
+		createStatementSql();
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private void resolveConstructors() {
+		try {
+			mCacheConstructor = mType.getConstructor(Cache.class);
+			return;
+		}
+		catch (NoSuchMethodException e) {
+			// Fall back to the default constructor.
+		}
+
+		try {
+			mDefaultConstructor = mType.getConstructor();
+		}
+		catch (NoSuchMethodException e) {
+			// Reported when a row is loaded, models may never be queried.
+		}
+	}
+
+	private void addUniqueColumn(Column column, String columnName) {
+		if (column.unique()) {
+			mUniqueColumns.add(columnName);
+		}
+
+		// Same rules as SQLiteUtils.createUniqueColumnDefinition.
+		final String[] groups = column.uniqueGroups();
+		if (groups.length != column.onUniqueConflicts().length) {
+			return;
+		}
+
+		for (String group : groups) {
+			if (TextUtils.isEmpty(group)) {
+				continue;
+			}
+
+			List<String> columns = mUniqueGroups.get(group);
+			if (columns == null) {
+				columns = new ArrayList<String>();
+				mUniqueGroups.put(group, columns);
+			}
+			columns.add(columnName);
+		}
+	}
+
+	private void createStatementSql() {
+		if (mValueBinders.length == 0) {
+			mInsertSql = "INSERT INTO " + mTableName + " DEFAULT VALUES";
+			mUpdateSql = null;
+			return;
+		}
+
+		final StringBuilder columns = new StringBuilder();
+		final StringBuilder assignments = new StringBuilder();
+		for (ColumnBinder binder : mValueBinders) {
+			if (columns.length() > 0) {
+				columns.append(", ");
+				assignments.append(", ");
+			}
+			columns.append(binder.getName());
+			assignments.append(binder.getName()).append("=?");
+		}
+
+		mInsertSql = "INSERT INTO " + mTableName + " (" + columns + ") VALUES ("
+				+ SQLiteUtils.createPlaceholders(mValueBinders.length) + ")";
+		mUpdateSql = "UPDATE " + mTableName + " SET " + assignments + " WHERE " + mIdName + "=?";
+	}
+
+	private List<String> getFieldNames() {
+		final List<String> names = new ArrayList<String>(mColumnNames.size());
+		for (Field field : mColumnNames.keySet()) {
+			names.add(field.getName());
+		}
+
+		return names;
+	}
 
     private Field getIdField(Class<?> type) {
         if (type.equals(Model.class)) {
@@ -0,0 +1,228 @@
+package com.activeandroid;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import android.content.ContentValues;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
+import android.text.TextUtils;
+
+import com.activeandroid.util.SQLiteUtils;
+
+/**
+ * Compiled statements inserting a model or updating the row it conflicts with on a
+ * set of unique columns.
+ *
+ * With SQLite 3.24 and up this is a single <code>INSERT ... ON CONFLICT(...) DO UPDATE</code>.
+ * Older versions look up the conflicting row and update it, or insert a new one. Either
+ * way the id of the resulting row is looked up through the unique index when it isn't
+ * known, since <code>last_insert_rowid()</code> isn't set when the row is updated.
+ */
+final class UpsertStatement {
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE MEMBERS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private final SQLiteDatabase mDatabase;
+	private final TableInfo mTableInfo;
+	private final ColumnBinder[] mConflictBinders;
+	private final boolean mNative;
+
+	private SQLiteStatement mUpsert;
+	private SQLiteStatement mSelectId;
+	private SQLiteStatement mInsert;
+	private SQLiteStatement mUpdate;
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTORS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	UpsertStatement(SQLiteDatabase db, TableInfo tableInfo, String[] conflictColumns) {
+		if (conflictColumns == null || conflictColumns.length == 0) {
+			conflictColumns = tableInfo.getDefaultConflictColumns();
+		}
+
+		if (conflictColumns == null) {
+			throw new IllegalArgumentException(tableInfo.getTableName()
+					+ " declares no unique columns to upsert on.");
+		}
+
+		mDatabase = db;
+		mTableInfo = tableInfo;
+		mConflictBinders = new ColumnBinder[conflictColumns.length];
+		mNative = SQLiteUtils.isUpsertSupported(db);
+
+		for (int i = 0; i < conflictColumns.length; i++) {
+			mConflictBinders[i] = tableInfo.getColumnBinder(conflictColumns[i]);
+
+			if (mConflictBinders[i] == null) {
+				throw new IllegalArgumentException(tableInfo.getTableName()
+						+ " has no column " + conflictColumns[i] + ".");
+			}
+		}
+
+		final StringBuilder where = new StringBuilder();
+		for (ColumnBinder binder : mConflictBinders) {
+			if (where.length() > 0) {
+				where.append(" AND ");
+			}
+			where.append(binder.getName()).append("=?");
+		}
+
+		mSelectId = db.compileStatement("SELECT " + tableInfo.getIdName() + " FROM "
+				+ tableInfo.getTableName() + " WHERE " + where);
+
+		if (mNative) {
+			mUpsert = db.compileStatement(createUpsertSql(tableInfo, mConflictBinders));
+		}
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PACKAGE PRIVATE METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Writes the model and returns the id of its row. The id of the model is left untouched.
+	 */
+	long execute(Model model) {
+		final ColumnBinder[] binders = mTableInfo.getValueBinders();
+
+		if (mNative) {
+			Model.bindValues(model, binders, mUpsert);
+
+			// Only trust the inserted id when the lookup can't match, e.g. a NULL conflict value.
+			final long insertedId = mUpsert.executeInsert();
+			final long id = selectId(model);
+
+			if (id == -1 && insertedId == -1) {
+				throw new SQLException("Error upserting " + model);
+			}
+
+			return id != -1 ? id : insertedId;
+		}
+
+		final long id = selectId(model);
+
+		if (id == -1) {
+			if (mInsert == null) {
+				mInsert = mDatabase.compileStatement(mTableInfo.getInsertSql());
+			}
+
+			Model.bindValues(model, binders, mInsert);
+
+			final long insertedId = mInsert.executeInsert();
+			if (insertedId == -1) {
+				throw new SQLException("Error inserting " + model);
+			}
+
+			return insertedId;
+		}
+
+		if (mTableInfo.getUpdateSql() != null) {
+			if (mUpdate == null) {
+				mUpdate = mDatabase.compileStatement(mTableInfo.getUpdateSql());
+			}
+
+			Model.bindValues(model, binders, mUpdate);
+			mUpdate.bindLong(binders.length + 1, id);
+			mUpdate.execute();
+		}
+
+		return id;
+	}
+
+	/**
+	 * Like {@link #execute(Model)}, but only writes the given values, for partially loaded
+	 * models.
+	 */
+	long execute(Model model, ContentValues values) {
+		final long id = selectId(model);
+
+		if (id == -1) {
+			return mDatabase.insertOrThrow(mTableInfo.getTableName(), null, values);
+		}
+
+		mDatabase.update(mTableInfo.getTableName(), values, mTableInfo.getIdName() + "=" + id, null);
+
+		return id;
+	}
+
+	void close() {
+		mSelectId.close();
+
+		if (mUpsert != null) {
+			mUpsert.close();
+		}
+		if (mInsert != null) {
+			mInsert.close();
+		}
+		if (mUpdate != null) {
+			mUpdate.close();
+		}
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private long selectId(Model model) {
+		mSelectId.clearBindings();
+		for (int i = 0; i < mConflictBinders.length; i++) {
+			mConflictBinders[i].bind(model, mSelectId, i + 1);
+		}
+
+		try {
+			return mSelectId.simpleQueryForLong();
+		}
+		catch (SQLiteDoneException e) {
+			return -1;
+		}
+	}
+
+	private static String createUpsertSql(TableInfo tableInfo, ColumnBinder[] conflictBinders) {
+		final List<ColumnBinder> conflicts = Arrays.asList(conflictBinders);
+		final String[] conflictColumns = new String[conflictBinders.length];
+		for (int i = 0; i < conflictBinders.length; i++) {
+			conflictColumns[i] = conflictBinders[i].getName();
+		}
+		final List<String> assignments = new ArrayList<String>();
+
+		for (ColumnBinder binder : tableInfo.getValueBinders()) {
+			if (!conflicts.contains(binder)) {
+				assignments.add(binder.getName() + "=excluded." + binder.getName());
+			}
+		}
+
+		final StringBuilder sql = new StringBuilder(tableInfo.getInsertSql());
+		sql.append(" ON CONFLICT(").append(TextUtils.join(", ", conflictColumns)).append(")");
+
+		if (assignments.isEmpty()) {
+			sql.append(" DO NOTHING");
+		}
+		else {
+			sql.append(" DO UPDATE SET ").append(TextUtils.join(", ", assignments));
+		}
+
+		return sql.toString();
+	}
+}
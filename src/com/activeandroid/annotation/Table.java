@@ -30,4 +30,10 @@ public @interface Table {
 	public static final String DEFAULT_ID_NAME = BaseColumns._ID;
 	public String name();
 	public String id() default DEFAULT_ID_NAME;
+
+	/**
+	 * Snapshot the columns of loaded and saved models so that <code>save()</code> only
+	 * updates the columns that changed, and skips unchanged models entirely.
+	 */
+	public boolean trackChanges() default false;
 }
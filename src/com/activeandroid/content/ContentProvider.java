@@ -6,6 +6,7 @@ import java.util.List;
 import android.content.ContentValues;
 import android.content.UriMatcher;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteQueryBuilder;
 import android.net.Uri;
 import android.util.SparseArray;
 
@@ -14,6 +15,7 @@ import com.activeandroid.Cache;
 import com.activeandroid.Configuration;
 import com.activeandroid.Model;
 import com.activeandroid.TableInfo;
+import com.activeandroid.util.SQLiteUtils;
 
 public class ContentProvider extends android.content.ContentProvider {
 	//////////////////////////////////////////////////////////////////////////////////////
@@ -93,7 +95,14 @@ public class ContentProvider extends android.content.ContentProvider {
 	@Override
 	public Uri insert(Uri uri, ContentValues values) {
 		final Class<? extends Model> type = getModelType(uri);
-		final Long id = ActiveAndroid.getCache().openDatabase().insert(ActiveAndroid.getCache().getTableName(type), null, values);
+		final Cache cache = ActiveAndroid.getCache();
+		final long start = System.nanoTime();
+		final Long id = cache.openDatabase().insert(cache.getTableName(type), null, values);
+
+		if (cache.hasQueryListeners()) {
+			cache.reportQuery(SQLiteUtils.toInsertSql(cache.getTableName(type), values),
+					SQLiteUtils.toBindArgs(values, null), start, id != null && id > 0 ? 1 : 0);
+		}
 
 		if (id != null && id > 0) {
 			Uri retUri = createUri(type, id);
@@ -108,7 +117,19 @@ public class ContentProvider extends android.content.ContentProvider {
 	@Override
 	public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
 		final Class<? extends Model> type = getModelType(uri);
-		final int count = ActiveAndroid.getCache().openDatabase().update(ActiveAndroid.getCache().getTableName(type), values, selection, selectionArgs);
+		final Cache cache = ActiveAndroid.getCache();
+		final long start = System.nanoTime();
+		final int count = cache.openDatabase().update(cache.getTableName(type), values, selection, selectionArgs);
+
+		if (cache.hasQueryListeners()) {
+			cache.reportQuery(SQLiteUtils.toUpdateSql(cache.getTableName(type), values, selection),
+					SQLiteUtils.toBindArgs(values, selectionArgs), start, count);
+		}
+
+		// Cached models of the type would keep the values from before the update.
+		if (count > 0) {
+			cache.removeEntities(type);
+		}
 
 		notifyChange(uri);
 
@@ -118,7 +139,18 @@ public class ContentProvider extends android.content.ContentProvider {
 	@Override
 	public int delete(Uri uri, String selection, String[] selectionArgs) {
 		final Class<? extends Model> type = getModelType(uri);
-		final int count = ActiveAndroid.getCache().openDatabase().delete(ActiveAndroid.getCache().getTableName(type), selection, selectionArgs);
+		final Cache cache = ActiveAndroid.getCache();
+		final long start = System.nanoTime();
+		final int count = cache.openDatabase().delete(cache.getTableName(type), selection, selectionArgs);
+
+		if (cache.hasQueryListeners()) {
+			cache.reportQuery("DELETE FROM " + cache.getTableName(type) + (selection != null ? " WHERE " + selection : ""),
+					selectionArgs, start, count);
+		}
+
+		if (count > 0) {
+			cache.removeEntities(type);
+		}
 
 		notifyChange(uri);
 
@@ -128,8 +160,10 @@ public class ContentProvider extends android.content.ContentProvider {
 	@Override
 	public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
 		final Class<? extends Model> type = getModelType(uri);
-		final Cursor cursor = ActiveAndroid.getCache().openDatabase().query(
-				ActiveAndroid.getCache().getTableName(type),
+		final Cache cache = ActiveAndroid.getCache();
+		final long start = System.nanoTime();
+		final Cursor cursor = cache.openDatabase().query(
+				cache.getTableName(type),
 				projection,
 				selection,
 				selectionArgs,
@@ -137,6 +171,12 @@ public class ContentProvider extends android.content.ContentProvider {
 				null,
 				sortOrder);
 
+		if (cache.hasQueryListeners()) {
+			// The cursor is filled lazily, so the row count isn't known yet.
+			cache.reportQuery(SQLiteQueryBuilder.buildQueryString(false, cache.getTableName(type), projection,
+					selection, null, null, sortOrder, null), selectionArgs, start, -1);
+		}
+
 		cursor.setNotificationUri(getContext().getContentResolver(), uri);
 
 		return cursor;
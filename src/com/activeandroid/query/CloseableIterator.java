@@ -0,0 +1,30 @@
+package com.activeandroid.query;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * Iterates over the rows of an open cursor, loading one model per call to
+ * {@link #next()}. The cursor is closed once the last row has been read, iterations
+ * stopped early must call {@link #close()}.
+ */
+public interface CloseableIterator<T> extends Iterator<T>, Closeable {
+	@Override
+	public void close();
+}
@@ -0,0 +1,194 @@
+package com.activeandroid.query;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.List;
+
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
+
+import com.activeandroid.Cache;
+import com.activeandroid.Model;
+import com.activeandroid.StatementCache;
+import com.activeandroid.util.SQLiteUtils;
+
+/**
+ * A select built once by {@link From#compile()} and executed with new arguments each time.
+ * The SQL never changes, so SQLite reuses the statement prepared for it on each connection.
+ * Counts and existence checks run on statements of the {@link StatementCache}, bound
+ * directly. Arguments are converted and bound as strings like those of {@link From}, so
+ * every method of a query matches the same rows.
+ *
+ * <pre>
+ * CompiledQuery&lt;Item&gt; byCategory = new Select().from(Item.class).where("Category = ?", 0).compile();
+ * List&lt;Item&gt; items = byCategory.execute(categoryId);
+ * </pre>
+ */
+public final class CompiledQuery<T extends Model> {
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE MEMBERS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private final Cache mCache;
+	private final Class<? extends Model> mType;
+	private final String mSql;
+	private final String mSingleSql;
+	private final String mCountSql;
+	private final String mExistsSql;
+	private final String[] mArguments;
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTORS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	CompiledQuery(Cache cache, Class<? extends Model> type, String sql, String singleSql, String countSql,
+			String existsSql, String[] arguments) {
+
+		mCache = cache;
+		mType = type;
+		mSql = sql;
+		mSingleSql = singleSql;
+		mCountSql = countSql;
+		mExistsSql = existsSql;
+		mArguments = arguments;
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PUBLIC METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	public String getSql() {
+		return mSql;
+	}
+
+	/**
+	 * Runs the query with the given arguments, or with the arguments it was compiled with
+	 * if none are given.
+	 */
+	public List<T> execute(Object... args) {
+		return SQLiteUtils.rawQuery(mCache, mType, mSql, toArguments(args));
+	}
+
+	/**
+	 * @see #execute(Object...)
+	 */
+	public T executeSingle(Object... args) {
+		return SQLiteUtils.rawQuerySingle(mCache, mType, mSingleSql, toArguments(args));
+	}
+
+	/**
+	 * @see #execute(Object...)
+	 */
+	public int count(Object... args) {
+		final String[] arguments = toArguments(args);
+		mCache.checkQueryPlan(mCountSql, arguments);
+		final long start = System.nanoTime();
+
+		final StatementCache statements = mCache.getStatementCache();
+		final SQLiteStatement statement = statements.acquire(mCountSql);
+		// A grouped count has no row at all when nothing matches.
+		int count;
+		try {
+			bind(statement, arguments);
+			count = (int) statement.simpleQueryForLong();
+		}
+		catch (SQLiteDoneException e) {
+			count = 0;
+		}
+		finally {
+			statements.release(mCountSql, statement);
+		}
+		mCache.reportQuery(mCountSql, arguments, start, 1);
+
+		return count;
+	}
+
+	/**
+	 * @see #execute(Object...)
+	 */
+	public boolean exists(Object... args) {
+		final String[] arguments = toArguments(args);
+		mCache.checkQueryPlan(mExistsSql, arguments);
+		final long start = System.nanoTime();
+
+		final StatementCache statements = mCache.getStatementCache();
+		final SQLiteStatement statement = statements.acquire(mExistsSql);
+		final boolean exists;
+		try {
+			bind(statement, arguments);
+			exists = statement.simpleQueryForLong() != 0;
+		}
+		finally {
+			statements.release(mExistsSql, statement);
+		}
+		mCache.reportQuery(mExistsSql, arguments, start, 1);
+
+		return exists;
+	}
+
+	/**
+	 * Does nothing, the statements are held by the {@link StatementCache} of the cache and
+	 * recompiled after the database is closed.
+	 */
+	public void close() {
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private String[] toArguments(Object[] args) {
+		if (args.length == 0) {
+			return mArguments;
+		}
+
+		checkArgumentCount(args);
+
+		final String[] arguments = new String[args.length];
+		for (int i = 0; i < args.length; i++) {
+			arguments[i] = toArgument(args[i]).toString();
+		}
+
+		return arguments;
+	}
+
+	private static void bind(SQLiteStatement statement, String[] arguments) {
+		statement.clearBindings();
+
+		for (int i = 0; i < arguments.length; i++) {
+			statement.bindString(i + 1, arguments[i]);
+		}
+	}
+
+	private void checkArgumentCount(Object[] args) {
+		if (args.length != mArguments.length) {
+			throw new IllegalArgumentException("Expected " + mArguments.length + " arguments, got " + args.length + ".");
+		}
+	}
+
+	private static Object toArgument(Object arg) {
+		// Same conversions as From.addArguments.
+		if (arg instanceof Boolean) {
+			return (Boolean) arg ? 1 : 0;
+		}
+		if (arg instanceof Model) {
+			return ((Model) arg).getId();
+		}
+
+		return arg;
+	}
+}
@@ -0,0 +1,108 @@
+package com.activeandroid.query;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.activeandroid.Cache;
+import com.activeandroid.Model;
+import com.activeandroid.content.ContentProvider;
+import com.activeandroid.util.SQLiteUtils;
+
+/**
+ * An update built once by {@link Set#compile()} and executed with new arguments each time
+ * on a statement of the {@link com.activeandroid.StatementCache}. Observers of the table
+ * are notified once per execution, and only when rows changed.
+ *
+ * <pre>
+ * CompiledUpdate markRead = new Update(Item.class).set("Read = ?", true).where("Category = ?", 0).compile();
+ * int count = markRead.execute(true, categoryId);
+ * </pre>
+ */
+public final class CompiledUpdate {
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE MEMBERS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private final Cache mCache;
+	private final Class<? extends Model> mType;
+	private final String mSql;
+	private final Object[] mArguments;
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTORS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	CompiledUpdate(Cache cache, Class<? extends Model> type, String sql, Object[] arguments) {
+		mCache = cache;
+		mType = type;
+		mSql = sql;
+		mArguments = arguments;
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PUBLIC METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	public String getSql() {
+		return mSql;
+	}
+
+	/**
+	 * Runs the update with the given set and where arguments, in that order, or with the
+	 * arguments it was compiled with if none are given. Arguments are converted like those
+	 * of {@link Set} and bound with their storage class.
+	 *
+	 * @return The number of rows changed.
+	 */
+	public int execute(Object... args) {
+		final int count = SQLiteUtils.executeUpdateDelete(mCache, mSql, toArguments(args));
+
+		if (count > 0) {
+			mCache.removeEntities(mType);
+			mCache.getContext().getContentResolver().notifyChange(ContentProvider.createUri(mType, null), null);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Does nothing, the statement is held by the {@link com.activeandroid.StatementCache} of
+	 * the cache and recompiled after the database is closed.
+	 */
+	public void close() {
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private Object[] toArguments(Object[] args) {
+		if (args.length == 0) {
+			return mArguments;
+		}
+
+		if (args.length != mArguments.length) {
+			throw new IllegalArgumentException("Expected " + mArguments.length + " arguments, got " + args.length + ".");
+		}
+
+		final Object[] arguments = new Object[args.length];
+		for (int i = 0; i < args.length; i++) {
+			arguments[i] = Set.toArgument(args[i]);
+		}
+
+		return arguments;
+	}
+}
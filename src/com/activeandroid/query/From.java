@@ -16,11 +16,16 @@ package com.activeandroid.query;
  * limitations under the License.
  */
 
+import android.content.ContentValues;
+import android.database.Cursor;
 import android.text.TextUtils;
 
 import com.activeandroid.ActiveAndroid;
+import com.activeandroid.AsyncCallback;
 import com.activeandroid.Cache;
+import com.activeandroid.ColumnBinder;
 import com.activeandroid.Model;
+import com.activeandroid.TableInfo;
 import com.activeandroid.content.ContentProvider;
 import com.activeandroid.query.Join.JoinType;
 import com.activeandroid.util.Log;
@@ -28,6 +33,9 @@ import com.activeandroid.util.SQLiteUtils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 public final class From implements Sqlable {
 	private Sqlable mQueryBase;
@@ -45,6 +53,15 @@ public final class From implements Sqlable {
 
 	private List<Object> mArguments;
 
+	private String[] mColumns;
+
+	private String[] mKeysetColumns;
+	private String[] mKeysetOrderColumns;
+
+	private long[] mIds;
+	private int mIdsOffset;
+	private int mIdsCount;
+
     public From(Class<? extends Model> table, Sqlable queryBase) {
         this(ActiveAndroid.getCache(), table, queryBase);
     }
@@ -129,6 +146,95 @@ public final class From implements Sqlable {
         return this;
     }
     
+    /**
+     * Restricts the query to the rows with the given ids. Lists longer than the bound
+     * variable limit of SQLite are queried in chunks, in a single transaction for deletes.
+     * Chunked queries can't be grouped, ordered or limited.
+     */
+    public From whereIdIn(long[] ids) {
+        mIds = ids;
+        setIdChunk(0, ids.length);
+        return this;
+    }
+
+    /**
+     * Orders the query by the given columns, each optionally followed by ASC or DESC, then by
+     * id, and seeks past the row with the given values instead of skipping rows with an
+     * offset. Order columns must not be NULL.
+     *
+     * @param lastRowValues The values of the order columns and the id of the last row of
+     * the previous page, see {@link Page#getNextKey()}, or null for the first page.
+     */
+    public From after(String[] orderColumns, Object[] lastRowValues) {
+        final TableInfo tableInfo = mCache.getTableInfo(mType);
+        final int count = orderColumns.length + 1;
+        final String[] columns = new String[count];
+        final boolean[] descending = new boolean[count];
+
+        for (int i = 0; i < orderColumns.length; i++) {
+            String column = orderColumns[i].trim();
+            final String upperColumn = column.toUpperCase();
+
+            if (upperColumn.endsWith(" DESC")) {
+                descending[i] = true;
+                column = column.substring(0, column.length() - 5).trim();
+            }
+            else if (upperColumn.endsWith(" ASC")) {
+                column = column.substring(0, column.length() - 4).trim();
+            }
+
+            columns[i] = column;
+        }
+
+        // Break ties on the id so rows sharing the same values are neither skipped nor repeated.
+        columns[count - 1] = (mAlias != null ? mAlias : tableInfo.getTableName()) + "." + tableInfo.getIdName();
+        descending[count - 1] = count > 1 && descending[count - 2];
+
+        final StringBuilder orderBy = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                orderBy.append(", ");
+            }
+            orderBy.append(columns[i]).append(descending[i] ? " DESC" : " ASC");
+        }
+
+        mOrderBy = orderBy.toString();
+        mKeysetColumns = columns;
+        mKeysetOrderColumns = orderColumns;
+
+        if (lastRowValues != null) {
+            if (lastRowValues.length != count) {
+                throw new IllegalArgumentException("Expected " + count + " values, the order columns and the id.");
+            }
+
+            // (a, b, id) > (?, ?, ?) expanded, row values need SQLite 3.15.
+            final StringBuilder clause = new StringBuilder();
+            final List<Object> args = new ArrayList<Object>();
+
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    clause.append(" OR ");
+                }
+                clause.append("(");
+                for (int j = 0; j < i; j++) {
+                    clause.append(columns[j]).append(" = ? AND ");
+                    args.add(lastRowValues[j]);
+                }
+                clause.append(columns[i]).append(descending[i] ? " < ?" : " > ?");
+                args.add(lastRowValues[i]);
+                clause.append(")");
+            }
+
+            // Keep an OR of the query's own conditions from swallowing the keyset clause.
+            if (mWhere.length() > 0) {
+                mWhere.insert(0, "(").append(")");
+            }
+            where("(" + clause + ")", args.toArray());
+        }
+
+        return this;
+    }
+
 	public From groupBy(String groupBy) {
 		mGroupBy = groupBy;
 		return this;
@@ -167,6 +273,9 @@ public final class From implements Sqlable {
             if (arg.getClass() == boolean.class || arg.getClass() == Boolean.class) {
                 arg = (arg.equals(true) ? 1 : 0);
             }
+            else if (arg instanceof Model) {
+                arg = ((Model) arg).getId();
+            }
             mArguments.add(arg);
         }
 	}
@@ -189,7 +298,16 @@ public final class From implements Sqlable {
     }
 
     private void addWhere(final StringBuilder sql) {
-        if (mWhere.length() > 0) {
+        if (mIds != null) {
+            sql.append("WHERE ");
+            if (mWhere.length() > 0) {
+                sql.append("(").append(mWhere).append(") AND ");
+            }
+            sql.append(mAlias != null ? mAlias : mCache.getTableName(mType));
+            sql.append(".").append(mCache.getTableInfo(mType).getIdName());
+            sql.append(" IN (").append(SQLiteUtils.createPlaceholders(mIdsCount)).append(") ");
+        }
+        else if (mWhere.length() > 0) {
             sql.append("WHERE ");
             sql.append(mWhere);
             sql.append(" ");
@@ -252,7 +370,12 @@ public final class From implements Sqlable {
     @Override
     public String toSql() {
         final StringBuilder sql = new StringBuilder();
-        sql.append(mQueryBase.toSql());
+        if (mColumns != null) {
+            sql.append(((Select) mQueryBase).toSql(mColumns));
+        }
+        else {
+            sql.append(mQueryBase.toSql());
+        }
 
         addFrom(sql);
         addJoins(sql);
@@ -300,54 +423,722 @@ public final class From implements Sqlable {
         return sqlString(sql);
     }
 
+    /**
+     * Builds a select of a single expression, honoring joins, where, group by and having
+     * the same way {@link #toCountSql()} does.
+     */
+    public String toAggregateSql(String expression) {
+
+        final StringBuilder sql = new StringBuilder();
+        sql.append("SELECT ").append(expression).append(" ");
+
+        addFrom(sql);
+        addJoins(sql);
+        addWhere(sql);
+        addGroupBy(sql);
+        addHaving(sql);
+        addLimit(sql);
+        addOffset(sql);
+
+        return sqlString(sql);
+    }
+
 	public <T extends Model> List<T> execute() {
+		if (isChunked()) {
+			return executeChunked();
+		}
+
 		if (mQueryBase instanceof Select) {
-			return SQLiteUtils.rawQuery(mCache,  mType, toSql(), getArguments());
+			return SQLiteUtils.rawQuery(mCache,  mType, toSql(), getArguments(), mColumns != null);
 			
 		} else {
 			SQLiteUtils.execSql(mCache, toSql(), getArguments());
+			removeEntities();
             mCache.getContext().getContentResolver().notifyChange(ContentProvider.createUri(mType, null), null);
 			return null;
 			
 		}
 	}
 
+	/**
+	 * Loads a page of a query paginated with {@link #after(String[], Object[])}.
+	 */
+	public <T extends Model> Page<T> executePage(int pageSize) {
+		if (mKeysetColumns == null) {
+			throw new IllegalStateException("Call after() before executing a page.");
+		}
+
+		limit(pageSize + 1);
+		List<T> items = execute();
+
+		final boolean hasNext = items.size() > pageSize;
+		if (hasNext) {
+			items = new ArrayList<T>(items.subList(0, pageSize));
+		}
+
+		final Object[] nextKey = items.isEmpty() ? null : getKeysetValues(items.get(items.size() - 1));
+		return new Page<T>(items, mKeysetOrderColumns, nextKey, hasNext);
+	}
+
+	/**
+	 * Streams the results, loading one model per row from an open cursor instead of
+	 * loading every row up front. Close the iterator if the iteration stops early.
+	 */
+	public <T extends Model> CloseableIterator<T> iterate() {
+		return iterate(false);
+	}
+
+	/**
+	 * @param reuseInstance Load every row into the same model instance, keeping allocations
+	 * constant for read-only scans. The instance must not be kept between rows.
+	 */
+	public <T extends Model> CloseableIterator<T> iterate(boolean reuseInstance) {
+		if (!(mQueryBase instanceof Select)) {
+			throw new IllegalStateException("Only selects can be iterated.");
+		}
+		if (isChunked()) {
+			throw new IllegalStateException("Can't iterate a query on more than " + getIdChunkSize() + " ids.");
+		}
+
+		final String sql = toSql();
+		mCache.checkQueryPlan(sql, getArguments());
+		final long start = System.nanoTime();
+		final Cursor cursor = mCache.openDatabase().rawQuery(sql, getArguments());
+		// Rows are read as the iterator advances, only opening the cursor is timed.
+		mCache.reportQuery(sql, getArguments(), start, -1);
+		return SQLiteUtils.iterateCursor(mCache, mType, cursor, reuseInstance);
+	}
+
+	/**
+	 * Streams every result to the callback, closing the cursor even if the callback throws.
+	 */
+	public <T extends Model> void forEach(ModelCallback<T> callback) {
+		forEach(false, callback);
+	}
+
+	/**
+	 * @see #iterate(boolean)
+	 */
+	public <T extends Model> void forEach(boolean reuseInstance, ModelCallback<T> callback) {
+		final CloseableIterator<T> iterator = iterate(reuseInstance);
+		try {
+			while (iterator.hasNext()) {
+				callback.onModel(iterator.next());
+			}
+		}
+		finally {
+			iterator.close();
+		}
+	}
+
+	/**
+	 * Loads partial models holding only the selected columns, plus the id. Without selected
+	 * columns every column but the strings and blobs is loaded. Partial models can't be
+	 * saved unless {@link Model#allowPartialSave()} is called.
+	 */
+	public <T extends Model> List<T> executeProjection() {
+		if (!(mQueryBase instanceof Select)) {
+			throw new IllegalStateException("Only selects can be projected.");
+		}
+
+		mColumns = getProjectionColumns();
+		try {
+			return execute();
+		}
+		finally {
+			mColumns = null;
+		}
+	}
+
+	/**
+	 * Reads a single column of the matching rows, without loading models. NULL values read
+	 * as 0.
+	 */
+	public long[] pluckLongs(String column) {
+		setPluckColumn(column);
+		try {
+			return SQLiteUtils.longArrayQuery(mCache, toSql(), getArguments());
+		}
+		finally {
+			mColumns = null;
+		}
+	}
+
+	/**
+	 * @see #pluckLongs(String)
+	 */
+	public int[] pluckInts(String column) {
+		setPluckColumn(column);
+		try {
+			return SQLiteUtils.intArrayQuery(mCache, toSql(), getArguments());
+		}
+		finally {
+			mColumns = null;
+		}
+	}
+
+	/**
+	 * @see #pluckLongs(String)
+	 */
+	public double[] pluckDoubles(String column) {
+		setPluckColumn(column);
+		try {
+			return SQLiteUtils.doubleArrayQuery(mCache, toSql(), getArguments());
+		}
+		finally {
+			mColumns = null;
+		}
+	}
+
+	/**
+	 * Reads a single column of the matching rows, without loading models. NULL values read
+	 * as null.
+	 */
+	public String[] pluckStrings(String column) {
+		setPluckColumn(column);
+		try {
+			return SQLiteUtils.stringArrayQuery(mCache, toSql(), getArguments());
+		}
+		finally {
+			mColumns = null;
+		}
+	}
+
+	/**
+	 * Sums a column of the matching rows inside SQLite. Returns 0 when there are no rows.
+	 * Use {@link #sumLong(String)} for integer columns, doubles lose precision above 2^53.
+	 * Aggregates can't be read from grouped queries, see {@link #groupedCount(String)}.
+	 */
+	public double sum(String column) {
+		return aggregate("TOTAL", column);
+	}
+
+	/**
+	 * Sums an integer column of the matching rows inside SQLite, exactly. Returns 0 when
+	 * there are no rows.
+	 */
+	public long sumLong(String column) {
+		return aggregateLong("SUM", column);
+	}
+
+	/**
+	 * Averages a column of the matching rows inside SQLite. Returns 0 when there are no rows.
+	 */
+	public double avg(String column) {
+		return aggregate("AVG", column);
+	}
+
+	/**
+	 * Returns the smallest value of a numeric column, or 0 when there are no rows. Use
+	 * {@link #minLong(String)} for integer columns and {@link #scalarString()} for text
+	 * columns.
+	 *
+	 * @throws IllegalArgumentException If the smallest value is text.
+	 */
+	public double min(String column) {
+		return aggregate("MIN", column);
+	}
+
+	/**
+	 * Returns the smallest value of an integer column, or 0 when there are no rows.
+	 */
+	public long minLong(String column) {
+		return aggregateLong("MIN", column);
+	}
+
+	/**
+	 * Returns the largest value of a numeric column, or 0 when there are no rows. Use
+	 * {@link #maxLong(String)} for integer columns and {@link #scalarString()} for text
+	 * columns.
+	 *
+	 * @throws IllegalArgumentException If the largest value is text.
+	 */
+	public double max(String column) {
+		return aggregate("MAX", column);
+	}
+
+	/**
+	 * Returns the largest value of an integer column, or 0 when there are no rows.
+	 */
+	public long maxLong(String column) {
+		return aggregateLong("MAX", column);
+	}
+
+	/**
+	 * Counts the matching rows per distinct value of a column, in the order of the query.
+	 * A group by set on the query must be the same column.
+	 */
+	public Map<String, Long> groupedCount(String column) {
+		checkScalar();
+		if (mGroupBy != null && !mGroupBy.equals(column)) {
+			throw new IllegalStateException("Can't count groups of " + column + " in a query grouped by " + mGroupBy + ".");
+		}
+
+		final String groupBy = mGroupBy;
+		mGroupBy = column;
+
+		try {
+			final StringBuilder sql = new StringBuilder();
+			sql.append("SELECT ").append(column).append(", COUNT(*) ");
+
+			addFrom(sql);
+			addJoins(sql);
+			addWhere(sql);
+			addGroupBy(sql);
+			addHaving(sql);
+			addOrderBy(sql);
+			addLimit(sql);
+			addOffset(sql);
+
+			return SQLiteUtils.groupedLongQuery(mCache, sqlString(sql), getArguments());
+		}
+		finally {
+			mGroupBy = groupBy;
+		}
+	}
+
+	/**
+	 * Reads the first column of the first row, e.g. of <code>new Select("MAX(Score)")</code>,
+	 * on a cached compiled statement instead of a cursor. Returns 0 when there are no rows.
+	 */
+	public long scalarLong() {
+		checkScalar();
+		return SQLiteUtils.longQuery(mCache, toSql(), getArguments());
+	}
+
+	/**
+	 * @see #scalarLong()
+	 * @return The value, or null when there are no rows.
+	 */
+	public String scalarString() {
+		checkScalar();
+		return SQLiteUtils.stringQuery(mCache, toSql(), getArguments());
+	}
+
 	public <T extends Model> T executeSingle() {
 		if (mQueryBase instanceof Select) {
 			limit(1);
+			if (isChunked()) {
+				final List<T> entities = executeChunked();
+				return entities.isEmpty() ? null : entities.get(0);
+			}
 			return (T) SQLiteUtils.rawQuerySingle(mCache, mType, toSql(), getArguments());
 			
 		} else {
-			limit(1);
-			SQLiteUtils.rawQuerySingle(mCache, mType, toSql(), getArguments()).delete();
+			executeDeleteSingle();
 			return null;
 			
 		}
 	}
+
+	/**
+	 * Deletes the first matching row in a single statement, without loading it as a model.
+	 *
+	 * @return The number of deleted rows, 0 or 1.
+	 */
+	public int executeDeleteSingle() {
+		if (!(mQueryBase instanceof Delete)) {
+			throw new IllegalStateException("Only deletes can delete a single row.");
+		}
+
+		limit(1);
+
+		int count = 0;
+		if (isChunked()) {
+			checkChunkable();
+			try {
+				for (int offset = 0; offset < mIds.length && count == 0; offset += getIdChunkSize()) {
+					setIdChunk(offset, getIdChunkSize());
+					count = SQLiteUtils.executeUpdateDelete(mCache, toDeleteSingleSql(), getArguments());
+				}
+			}
+			finally {
+				setIdChunk(0, mIds.length);
+			}
+		}
+		else {
+			count = SQLiteUtils.executeUpdateDelete(mCache, toDeleteSingleSql(), getArguments());
+		}
+
+		if (count > 0) {
+			// The deleted id isn't known without selecting it first.
+			removeEntities();
+			mCache.getContext().getContentResolver().notifyChange(ContentProvider.createUri(mType, null), null);
+		}
+
+		return count;
+	}
 	
+	public <T extends Model> Future<List<T>> executeAsync() {
+		return executeAsync(null);
+	}
+
+	/**
+	 * Runs {@link #execute()} on the executor of the cache, on the read pool for selects and
+	 * on the writer thread otherwise. The query must not be changed until it completes.
+	 *
+	 * @param callback Notified on the main thread, can be null.
+	 */
+	public <T extends Model> Future<List<T>> executeAsync(AsyncCallback<List<T>> callback) {
+		final Callable<List<T>> task = new Callable<List<T>>() {
+			@Override
+			public List<T> call() {
+				return execute();
+			}
+		};
+
+		if (mQueryBase instanceof Select) {
+			return mCache.getExecutor().read(task, callback);
+		}
+		return mCache.getExecutor().write(task, callback);
+	}
+
+	/**
+	 * @see #executeAsync(AsyncCallback)
+	 */
+	public <T extends Model> Future<T> executeSingleAsync(AsyncCallback<T> callback) {
+		final Callable<T> task = new Callable<T>() {
+			@Override
+			public T call() {
+				return executeSingle();
+			}
+		};
+
+		if (mQueryBase instanceof Select) {
+			return mCache.getExecutor().read(task, callback);
+		}
+		return mCache.getExecutor().write(task, callback);
+	}
+
+	/**
+	 * Runs {@link #exists()} on the read pool of the cache.
+	 */
+	public Future<Boolean> existsAsync(AsyncCallback<Boolean> callback) {
+		return mCache.getExecutor().read(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return exists();
+			}
+		}, callback);
+	}
+
+	public Future<Integer> countAsync() {
+		return countAsync(null);
+	}
+
+	/**
+	 * Runs {@link #count()} on the read pool of the cache.
+	 */
+	public Future<Integer> countAsync(AsyncCallback<Integer> callback) {
+		return mCache.getExecutor().read(new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return count();
+			}
+		}, callback);
+	}
+
+	public <T extends Model> QueryObserver<T> observe(AsyncCallback<List<T>> listener) {
+		return observe(listener, QueryObserver.DEFAULT_DEBOUNCE_MILLIS);
+	}
+
+	/**
+	 * Runs the select on the read pool now and again whenever the selected or joined tables
+	 * change, waiting for changes to settle for the given delay. Results are delivered on
+	 * the main thread, only when they differ from the previous ones. The query must not be
+	 * changed while observed.
+	 *
+	 * @return The observer, to stop once results aren't needed anymore.
+	 */
+	public <T extends Model> QueryObserver<T> observe(AsyncCallback<List<T>> listener, long debounceMillis) {
+		if (!(mQueryBase instanceof Select)) {
+			throw new IllegalStateException("Only selects can be observed.");
+		}
+
+		final List<Class<? extends Model>> tables = new ArrayList<Class<? extends Model>>();
+		tables.add(mType);
+		for (Join join : mJoins) {
+			if (!tables.contains(join.getType())) {
+				tables.add(join.getType());
+			}
+		}
+
+		final QueryObserver<T> observer = new QueryObserver<T>(mCache, this, tables, listener, debounceMillis);
+		observer.start();
+		return observer;
+	}
+
+	/**
+	 * Runs <code>EXPLAIN QUERY PLAN</code> on the query with its current arguments, e.g. to
+	 * check that it uses an index rather than scanning the table.
+	 */
+	public QueryPlan explain() {
+		if (isChunked()) {
+			throw new IllegalStateException("Can't explain a query on more than " + getIdChunkSize() + " ids.");
+		}
+
+		return SQLiteUtils.explainQuery(mCache, toSql(), getArguments());
+	}
+
+	/**
+	 * Builds the SQL of the select once, to execute it repeatedly with new arguments. The
+	 * arguments given so far become the defaults, and set how many arguments it takes.
+	 */
+	public <T extends Model> CompiledQuery<T> compile() {
+		if (!(mQueryBase instanceof Select)) {
+			throw new IllegalStateException("Only selects can be compiled.");
+		}
+		if (isChunked()) {
+			throw new IllegalStateException("Can't compile a query on more than " + getIdChunkSize() + " ids.");
+		}
+
+		final String sql = toSql();
+		final String limit = mLimit;
+		limit(1);
+		final String singleSql = toSql();
+		mLimit = limit;
+
+		return new CompiledQuery<T>(mCache, mType, sql, singleSql, toCountSql(), toExistsSql(), getArguments());
+	}
+
     /**
      * Gets a value indicating whether the query returns any rows.
      * @return <code>true</code> if the query returns at least one row; otherwise, <code>false</code>.
      */
     public boolean exists() {
-        return SQLiteUtils.intQuery(mCache, toExistsSql(), getArguments()) != 0;
+        if (isChunked()) {
+            checkChunkable();
+            for (int offset = 0; offset < mIds.length; offset += getIdChunkSize()) {
+                setIdChunk(offset, getIdChunkSize());
+                if (SQLiteUtils.longQuery(mCache, toExistsSql(), getArguments()) != 0) {
+                    setIdChunk(0, mIds.length);
+                    return true;
+                }
+            }
+            setIdChunk(0, mIds.length);
+            return false;
+        }
+
+        return SQLiteUtils.longQuery(mCache, toExistsSql(), getArguments()) != 0;
     }
 
     /**
      * Gets the number of rows returned by the query.
      */
     public int count() {
-        return SQLiteUtils.intQuery(mCache, toCountSql(), getArguments());
+        if (isChunked()) {
+            checkChunkable();
+            int count = 0;
+            for (int offset = 0; offset < mIds.length; offset += getIdChunkSize()) {
+                setIdChunk(offset, getIdChunkSize());
+                count += (int) SQLiteUtils.longQuery(mCache, toCountSql(), getArguments());
+            }
+            setIdChunk(0, mIds.length);
+            return count;
+        }
+
+        return (int) SQLiteUtils.longQuery(mCache, toCountSql(), getArguments());
     }
 
 	public String[] getArguments() {
 		final int size = mArguments.size();
-		final String[] args = new String[size];
+		final String[] args = new String[size + (mIds != null ? mIdsCount : 0)];
 
 		for (int i = 0; i < size; i++) {
 			args[i] = mArguments.get(i).toString();
 		}
 
+		for (int i = size; i < args.length; i++) {
+			args[i] = Long.toString(mIds[mIdsOffset + i - size]);
+		}
+
 		return args;
 	}
+
+	private void setPluckColumn(String column) {
+		if (!(mQueryBase instanceof Select)) {
+			throw new IllegalStateException("Only selects can be plucked.");
+		}
+		if (isChunked()) {
+			throw new IllegalStateException("Can't pluck a query on more than " + getIdChunkSize() + " ids.");
+		}
+
+		mColumns = new String[] { column };
+	}
+
+	private double aggregate(String function, String column) {
+		checkAggregate(function);
+		return SQLiteUtils.doubleQuery(mCache, toAggregateSql(function + "(" + column + ")"), getArguments());
+	}
+
+	private long aggregateLong(String function, String column) {
+		checkAggregate(function);
+		return SQLiteUtils.longQuery(mCache, toAggregateSql(function + "(" + column + ")"), getArguments());
+	}
+
+	private void checkAggregate(String function) {
+		checkScalar();
+		// A grouped query has a value per group, only the first one would be read.
+		if (mGroupBy != null) {
+			throw new IllegalStateException("Can't read " + function + " of a query grouped by " + mGroupBy + ".");
+		}
+	}
+
+	private void checkScalar() {
+		if (!(mQueryBase instanceof Select)) {
+			throw new IllegalStateException("Only selects have a scalar value.");
+		}
+		if (isChunked()) {
+			throw new IllegalStateException("Can't read a scalar of a query on more than " + getIdChunkSize() + " ids.");
+		}
+	}
+
+	private Object[] getKeysetValues(Model model) {
+		final TableInfo tableInfo = mCache.getTableInfo(mType);
+		final Object[] values = new Object[mKeysetColumns.length];
+		final ContentValues columnValues = new ContentValues();
+
+		for (int i = 0; i < values.length - 1; i++) {
+			final String column = mKeysetColumns[i].substring(mKeysetColumns[i].lastIndexOf('.') + 1);
+			final ColumnBinder binder = tableInfo.getColumnBinder(column);
+
+			if (binder == null) {
+				throw new IllegalArgumentException(column + " isn't a column of " + tableInfo.getTableName() + ".");
+			}
+
+			binder.save(model, columnValues);
+			values[i] = columnValues.get(binder.getName());
+		}
+
+		values[values.length - 1] = model.getId();
+		return values;
+	}
+
+	private String[] getProjectionColumns() {
+		final TableInfo tableInfo = mCache.getTableInfo(mType);
+		final String table = mAlias != null ? mAlias : tableInfo.getTableName();
+		final String idColumn = table + "." + tableInfo.getIdName();
+		final String[] columns = ((Select) mQueryBase).getColumns();
+
+		if (columns != null && columns.length > 0) {
+			for (String column : columns) {
+				if (column.equalsIgnoreCase(tableInfo.getIdName()) || column.equalsIgnoreCase(idColumn)) {
+					return columns;
+				}
+			}
+
+			final String[] projection = new String[columns.length + 1];
+			projection[0] = idColumn;
+			System.arraycopy(columns, 0, projection, 1, columns.length);
+			return projection;
+		}
+
+		final List<String> projection = new ArrayList<String>();
+		for (ColumnBinder binder : tableInfo.getColumnBinders()) {
+			if (!binder.isVariableLength()) {
+				projection.add(table + "." + binder.getName());
+			}
+		}
+
+		return projection.toArray(new String[projection.size()]);
+	}
+
+	private int getIdChunkSize() {
+		return SQLiteUtils.MAX_BOUND_VARIABLES - mArguments.size();
+	}
+
+	private boolean isChunked() {
+		return mIds != null && mIds.length > getIdChunkSize();
+	}
+
+	private void setIdChunk(int offset, int count) {
+		mIdsOffset = offset;
+		mIdsCount = Math.min(count, mIds.length - offset);
+	}
+
+	private void checkChunkable() {
+		if (mGroupBy != null || mHaving != null || mOrderBy != null || mOffset != null
+				|| (mLimit != null && !"1".equals(mLimit))) {
+			throw new IllegalStateException("Can't group, order or limit a query on more than "
+					+ getIdChunkSize() + " ids.");
+		}
+	}
+
+	private <T extends Model> List<T> executeChunked() {
+		checkChunkable();
+
+		final List<T> entities = new ArrayList<T>();
+		final boolean select = mQueryBase instanceof Select;
+
+		if (!select) {
+			mCache.openDatabase().beginTransaction();
+		}
+		try {
+			for (int offset = 0; offset < mIds.length; offset += getIdChunkSize()) {
+				setIdChunk(offset, getIdChunkSize());
+
+				if (select) {
+					entities.addAll(SQLiteUtils.<T>rawQuery(mCache, mType, toSql(), getArguments(), mColumns != null));
+					if (mLimit != null && !entities.isEmpty()) {
+						break;
+					}
+				}
+				else {
+					SQLiteUtils.execSql(mCache, toSql(), getArguments());
+				}
+			}
+
+			if (!select) {
+				mCache.openDatabase().setTransactionSuccessful();
+			}
+		}
+		finally {
+			if (!select) {
+				mCache.openDatabase().endTransaction();
+			}
+			setIdChunk(0, mIds.length);
+		}
+
+		if (select) {
+			return entities;
+		}
+
+		removeEntities();
+		mCache.getContext().getContentResolver().notifyChange(ContentProvider.createUri(mType, null), null);
+		return null;
+	}
+
+	private String toDeleteSingleSql() {
+		final TableInfo tableInfo = mCache.getTableInfo(mType);
+		final String idName = tableInfo.getIdName();
+
+		final StringBuilder sql = new StringBuilder();
+		sql.append("DELETE FROM ").append(tableInfo.getTableName());
+		sql.append(" WHERE ").append(idName).append(" IN (SELECT ");
+		sql.append(mAlias != null ? mAlias : tableInfo.getTableName()).append(".").append(idName).append(" ");
+
+		addFrom(sql);
+		addJoins(sql);
+		addWhere(sql);
+		addGroupBy(sql);
+		addHaving(sql);
+		addOrderBy(sql);
+		addLimit(sql);
+		addOffset(sql);
+
+		sql.append(")");
+
+		return sqlString(sql);
+	}
+
+	private void removeEntities() {
+		if (mIds == null) {
+			mCache.removeEntities(mType);
+			return;
+		}
+
+		for (long id : mIds) {
+			mCache.removeEntity(mType, id);
+		}
+	}
 }
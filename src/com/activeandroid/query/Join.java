@@ -46,6 +46,10 @@ public final class Join implements Sqlable {
 		mJoinType = joinType;
 	}
 
+	Class<? extends Model> getType() {
+		return mType;
+	}
+
 	public Join as(String alias) {
 		mAlias = alias;
 		return this;
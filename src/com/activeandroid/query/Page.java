@@ -0,0 +1,81 @@
+package com.activeandroid.query;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.List;
+
+import com.activeandroid.Model;
+
+/**
+ * A page of a keyset paginated query, see {@link From#after(String[], Object[])}.
+ *
+ * <pre>
+ * Page&lt;Message&gt; page = new Select().from(Message.class)
+ *         .after(new String[] { "Date DESC" }, null).executePage(50);
+ *
+ * Page&lt;Message&gt; next = new Select().from(Message.class)
+ *         .after(page.getOrderColumns(), page.getNextKey()).executePage(50);
+ * </pre>
+ */
+public final class Page<T extends Model> {
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE MEMBERS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private final List<T> mItems;
+	private final String[] mOrderColumns;
+	private final Object[] mNextKey;
+	private final boolean mHasNext;
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTORS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	Page(List<T> items, String[] orderColumns, Object[] nextKey, boolean hasNext) {
+		mItems = items;
+		mOrderColumns = orderColumns;
+		mNextKey = nextKey;
+		mHasNext = hasNext;
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PUBLIC METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	public List<T> getItems() {
+		return mItems;
+	}
+
+	/**
+	 * @return The order columns the page was queried with.
+	 */
+	public String[] getOrderColumns() {
+		return mOrderColumns;
+	}
+
+	/**
+	 * @return The values of the order columns and the id of the last row, to pass to
+	 * {@link From#after(String[], Object[])} for the next page. Null for an empty page.
+	 */
+	public Object[] getNextKey() {
+		return mNextKey;
+	}
+
+	public boolean hasNext() {
+		return mHasNext;
+	}
+}
@@ -0,0 +1,210 @@
+package com.activeandroid.query;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.database.ContentObserver;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.activeandroid.AsyncCallback;
+import com.activeandroid.Cache;
+import com.activeandroid.Model;
+import com.activeandroid.content.ContentProvider;
+
+/**
+ * Re-runs a query on the read pool of the cache when one of its tables changes, see
+ * {@link From#observe(AsyncCallback)}. Bursts of changes are debounced and results are
+ * only delivered when a row or one of its column values changed.
+ */
+public final class QueryObserver<T extends Model> {
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PUBLIC CONSTANTS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	public static final long DEFAULT_DEBOUNCE_MILLIS = 100;
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE MEMBERS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private final Cache mCache;
+	private final From mFrom;
+	private final List<Class<? extends Model>> mTables;
+	private final AsyncCallback<List<T>> mListener;
+	private final long mDebounceMillis;
+
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+	private final ContentObserver mObserver = new ContentObserver(mHandler) {
+		@Override
+		public void onChange(boolean selfChange) {
+			mHandler.removeCallbacks(mRequery);
+			mHandler.postDelayed(mRequery, mDebounceMillis);
+		}
+	};
+
+	private final Runnable mRequery = new Runnable() {
+		@Override
+		public void run() {
+			requery();
+		}
+	};
+
+	private List<ContentValues> mLastValues;
+	private boolean mRunning;
+	private boolean mPending;
+	private volatile boolean mStopped;
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTORS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	QueryObserver(Cache cache, From from, List<Class<? extends Model>> tables,
+			AsyncCallback<List<T>> listener, long debounceMillis) {
+
+		mCache = cache;
+		mFrom = from;
+		mTables = tables;
+		mListener = listener;
+		mDebounceMillis = debounceMillis;
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PUBLIC METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Stops observing the tables. No results are delivered afterwards.
+	 */
+	public void stop() {
+		mStopped = true;
+		mHandler.removeCallbacks(mRequery);
+		mCache.getContext().getContentResolver().unregisterContentObserver(mObserver);
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PACKAGE PRIVATE METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	void start() {
+		final ContentResolver resolver = mCache.getContext().getContentResolver();
+		for (Class<? extends Model> table : mTables) {
+			resolver.registerContentObserver(ContentProvider.createUri(table, null), true, mObserver);
+		}
+
+		requery();
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private synchronized void requery() {
+		if (mStopped) {
+			return;
+		}
+
+		// One run at a time, changes during a run trigger a single run after it.
+		if (mRunning) {
+			mPending = true;
+			return;
+		}
+		mRunning = true;
+
+		mCache.getExecutor().read(new Callable<List<T>>() {
+			@Override
+			public List<T> call() {
+				final List<T> results = mFrom.execute();
+				return hasChanged(results) ? results : null;
+			}
+		}, new AsyncCallback<List<T>>() {
+			@Override
+			public void onResult(List<T> results) {
+				finishRun();
+				if (results != null && !mStopped) {
+					mListener.onResult(results);
+				}
+			}
+
+			@Override
+			public void onError(Throwable error) {
+				finishRun();
+				if (!mStopped) {
+					mListener.onError(error);
+				}
+			}
+		});
+	}
+
+	private synchronized void finishRun() {
+		mRunning = false;
+		if (mPending) {
+			mPending = false;
+			requery();
+		}
+	}
+
+	private synchronized boolean hasChanged(List<T> results) {
+		final List<ContentValues> values = new ArrayList<ContentValues>(results.size());
+		for (T result : results) {
+			values.add(result.toContentValues());
+		}
+
+		final boolean changed = mLastValues == null || !valuesEqual(mLastValues, values);
+		mLastValues = values;
+
+		return changed;
+	}
+
+	private static boolean valuesEqual(List<ContentValues> previous, List<ContentValues> current) {
+		if (previous.size() != current.size()) {
+			return false;
+		}
+
+		for (int i = 0; i < current.size(); i++) {
+			final ContentValues previousValues = previous.get(i);
+			final ContentValues currentValues = current.get(i);
+
+			if (previousValues.size() != currentValues.size()) {
+				return false;
+			}
+
+			for (Map.Entry<String, Object> entry : currentValues.valueSet()) {
+				final Object previousValue = previousValues.get(entry.getKey());
+				final Object currentValue = entry.getValue();
+
+				if (previousValue instanceof byte[] && currentValue instanceof byte[]) {
+					if (!Arrays.equals((byte[]) previousValue, (byte[]) currentValue)) {
+						return false;
+					}
+				}
+				else if (previousValue == null ? currentValue != null : !previousValue.equals(currentValue)) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+}
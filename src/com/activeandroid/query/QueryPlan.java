@@ -0,0 +1,157 @@
+package com.activeandroid.query;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import android.text.TextUtils;
+
+/**
+ * The result of <code>EXPLAIN QUERY PLAN</code> for a statement, as returned by
+ * {@link From#explain()}. Each step is a row of the plan, e.g.
+ * <code>SCAN TABLE Items</code> or <code>SEARCH TABLE Items USING INDEX ...</code>.
+ */
+public final class QueryPlan {
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE MEMBERS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private final String mSql;
+	private final List<Step> mSteps;
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTORS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	public QueryPlan(String sql, List<Step> steps) {
+		mSql = sql;
+		mSteps = Collections.unmodifiableList(steps);
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PUBLIC METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	public String getSql() {
+		return mSql;
+	}
+
+	public List<Step> getSteps() {
+		return mSteps;
+	}
+
+	/**
+	 * @return The tables read in full without the help of an index.
+	 */
+	public List<String> getScannedTables() {
+		final List<String> tables = new ArrayList<String>();
+		for (Step step : mSteps) {
+			if (step.isFullScan()) {
+				tables.add(step.getTable());
+			}
+		}
+
+		return tables;
+	}
+
+	public boolean hasFullScan() {
+		return !getScannedTables().isEmpty();
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// OVERRIDEN METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public String toString() {
+		return mSql + "\n" + TextUtils.join("\n", mSteps);
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// INNER CLASSES
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	public static final class Step {
+		private final int mId;
+		private final int mParent;
+		private final String mDetail;
+		private final String mTable;
+
+		public Step(int id, int parent, String detail) {
+			mId = id;
+			mParent = parent;
+			mDetail = detail;
+			mTable = parseScannedTable(detail);
+		}
+
+		public int getId() {
+			return mId;
+		}
+
+		public int getParent() {
+			return mParent;
+		}
+
+		public String getDetail() {
+			return mDetail;
+		}
+
+		/**
+		 * @return The table or alias scanned by this step, or null if it isn't a scan.
+		 */
+		public String getTable() {
+			return mTable;
+		}
+
+		/**
+		 * @return <code>true</code> if the step reads every row of a table without an index.
+		 */
+		public boolean isFullScan() {
+			return mTable != null && !mDetail.contains(" INDEX ");
+		}
+
+		@Override
+		public String toString() {
+			return mId + "|" + mParent + "|" + mDetail;
+		}
+
+		private static String parseScannedTable(String detail) {
+			// "SCAN TABLE Items AS i" before SQLite 3.36, "SCAN Items" or "SCAN i" since.
+			if (detail == null || !detail.startsWith("SCAN ")) {
+				return null;
+			}
+
+			String table = detail.substring("SCAN ".length());
+			if (table.startsWith("TABLE ")) {
+				table = table.substring("TABLE ".length());
+			}
+
+			final int end = table.indexOf(' ');
+			if (end != -1) {
+				table = table.substring(0, end);
+			}
+
+			if (table.equals("SUBQUERY") || table.equals("CONSTANT")) {
+				return null;
+			}
+
+			return table;
+		}
+	}
+}
@@ -53,6 +53,16 @@ public final class Select implements Sqlable {
 		}
 	}
 
+	/**
+	 * Selects the given columns only. Combined with {@link From#executeProjection()}, the
+	 * loaded models are partial.
+	 */
+	public Select columns(String... columns) {
+		mColumns = columns;
+
+		return this;
+	}
+
 	public Select distinct() {
 		mDistinct = true;
 		mAll = false;
@@ -83,6 +93,14 @@ public final class Select implements Sqlable {
 
 	@Override
 	public String toSql() {
+		return toSql(mColumns);
+	}
+
+	String[] getColumns() {
+		return mColumns;
+	}
+
+	String toSql(String[] columns) {
 		StringBuilder sql = new StringBuilder();
 
 		sql.append("SELECT ");
@@ -94,8 +112,8 @@ public final class Select implements Sqlable {
 			sql.append("ALL ");
 		}
 
-		if (mColumns != null && mColumns.length > 0) {
-			sql.append(TextUtils.join(", ", mColumns) + " ");
+		if (columns != null && columns.length > 0) {
+			sql.append(TextUtils.join(", ", columns) + " ");
 		}
 		else {
 			sql.append("* ");
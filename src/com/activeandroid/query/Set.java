@@ -17,12 +17,16 @@ package com.activeandroid.query;
  */
 
 import com.activeandroid.ActiveAndroid;
+import com.activeandroid.AsyncCallback;
 import com.activeandroid.Cache;
+import com.activeandroid.Model;
+import com.activeandroid.content.ContentProvider;
 import com.activeandroid.util.SQLiteUtils;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 public final class Set implements Sqlable {
 	private Update mUpdate;
@@ -50,7 +54,7 @@ public final class Set implements Sqlable {
 	public Set(Cache cache, Update queryBase, String set, Object... args) {
 		this(cache, queryBase, set);
 
-		mSetArguments.addAll(Arrays.asList(args));
+		addArguments(mSetArguments, args);
 	}
 
 	public Set where(String where) {
@@ -63,7 +67,7 @@ public final class Set implements Sqlable {
 	public Set where(String where, Object... args) {
 		mWhere = where;
 		mWhereArguments.clear();
-		mWhereArguments.addAll(Arrays.asList(args));
+		addArguments(mWhereArguments, args);
 
 		return this;
 	}
@@ -85,8 +89,43 @@ public final class Set implements Sqlable {
 		return sql.toString();
 	}
 
-	public void execute() {
-		SQLiteUtils.execSql(mCache, toSql(), getArguments());
+	/**
+	 * Runs the update on a cached compiled statement, notifying observers of the table
+	 * when rows changed.
+	 *
+	 * @return The number of rows changed.
+	 */
+	public int execute() {
+		final int count = SQLiteUtils.executeUpdateDelete(mCache, toSql(), getBindArguments());
+
+		if (count > 0) {
+			mCache.removeEntities(mUpdate.getType());
+			mCache.getContext().getContentResolver()
+					.notifyChange(ContentProvider.createUri(mUpdate.getType(), null), null);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Compiles the update to be executed repeatedly with new arguments.
+	 */
+	public CompiledUpdate compile() {
+		return new CompiledUpdate(mCache, mUpdate.getType(), toSql(), getBindArguments());
+	}
+
+	/**
+	 * Runs {@link #execute()} on the writer thread of the cache.
+	 *
+	 * @param callback Notified on the main thread with the number of rows changed, can be null.
+	 */
+	public Future<Integer> executeAsync(AsyncCallback<Integer> callback) {
+		return mCache.getExecutor().write(new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return execute();
+			}
+		}, callback);
 	}
 
 	public String[] getArguments() {
@@ -104,4 +143,32 @@ public final class Set implements Sqlable {
 
 		return args;
 	}
+
+	/**
+	 * Converts a set or where argument like {@link From} does: booleans to 1 or 0 and models
+	 * to their id.
+	 */
+	static Object toArgument(Object arg) {
+		if (arg instanceof Boolean) {
+			return (Boolean) arg ? 1 : 0;
+		}
+		if (arg instanceof Model) {
+			return ((Model) arg).getId();
+		}
+
+		return arg;
+	}
+
+	private Object[] getBindArguments() {
+		final List<Object> args = new ArrayList<Object>(mSetArguments);
+		args.addAll(mWhereArguments);
+
+		return args.toArray();
+	}
+
+	private static void addArguments(List<Object> arguments, Object[] args) {
+		for (Object arg : args) {
+			arguments.add(toArgument(arg));
+		}
+	}
 }
@@ -18,6 +18,8 @@ package com.activeandroid.util;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
@@ -28,6 +30,7 @@ import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 
+import com.activeandroid.Lazy;
 import com.activeandroid.Model;
 import com.activeandroid.annotation.Column;
 import com.activeandroid.serializer.TypeSerializer;
@@ -41,6 +44,33 @@ public final class ReflectionUtils {
 		return isSubclassOf(type, Model.class) && (!Modifier.isAbstract(type.getModifiers()));
 	}
 
+	public static boolean isLazy(Class<?> type) {
+		return Lazy.class.equals(type);
+	}
+
+	/**
+	 * Gets the model referenced by a foreign key field, either a <code>Model</code> or a
+	 * <code>Lazy&lt;Model&gt;</code>.
+	 *
+	 * @return The referenced model type, or null if the field isn't a foreign key.
+	 */
+	@SuppressWarnings("unchecked")
+	public static Class<? extends Model> getReferencedType(Field field) {
+		final Class<?> type = field.getType();
+		if (isModel(type)) {
+			return (Class<? extends Model>) type;
+		}
+
+		if (isLazy(type) && field.getGenericType() instanceof ParameterizedType) {
+			final Type argument = ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+			if (argument instanceof Class && isModel((Class<?>) argument)) {
+				return (Class<? extends Model>) argument;
+			}
+		}
+
+		return null;
+	}
+
 	public static boolean isTypeSerializer(Class<?> type) {
 		return isSubclassOf(type, TypeSerializer.class);
 	}
@@ -16,26 +16,37 @@ package com.activeandroid.util;
  * limitations under the License.
  */
 
+import android.content.ContentValues;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
 import android.os.Build;
 import android.text.TextUtils;
 
 import com.activeandroid.Cache;
+import com.activeandroid.ColumnBinder;
+import com.activeandroid.ForeignKeyResolver;
 import com.activeandroid.Model;
+import com.activeandroid.StatementCache;
+import com.activeandroid.TableAdapter;
 import com.activeandroid.TableInfo;
 import com.activeandroid.annotation.Column;
 import com.activeandroid.annotation.Column.ConflictAction;
+import com.activeandroid.query.CloseableIterator;
+import com.activeandroid.query.QueryPlan;
 import com.activeandroid.serializer.TypeSerializer;
 
 import java.lang.Long;
 import java.lang.String;
-import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
-import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 public final class SQLiteUtils {
@@ -52,6 +63,11 @@ public final class SQLiteUtils {
 	//////////////////////////////////////////////////////////////////////////////////////
 
 	public static final boolean FOREIGN_KEYS_SUPPORTED = Build.VERSION.SDK_INT >= Build.VERSION_CODES.FROYO;
+	public static final boolean CURSOR_TYPES_SUPPORTED = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB;
+	public static final boolean UPDATE_DELETE_SUPPORTED = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB;
+
+	/** Default SQLITE_MAX_VARIABLE_NUMBER, the most arguments a single statement can bind. */
+	public static final int MAX_BOUND_VARIABLES = 999;
 
 	//////////////////////////////////////////////////////////////////////////////////////
 	// PRIVATE CONTSANTS
@@ -90,32 +106,352 @@ public final class SQLiteUtils {
 	private static HashMap<String, List<String>> sUniqueGroupMap;
 	private static HashMap<String, ConflictAction> sOnUniqueConflictsMap;
 
+	private static Boolean sUpsertSupported;
+
 	//////////////////////////////////////////////////////////////////////////////////////
 	// PUBLIC METHODS
 	//////////////////////////////////////////////////////////////////////////////////////
 
 	public static void execSql(Cache cache, String sql) {
+		cache.checkQueryPlan(sql, null);
+		final long start = System.nanoTime();
 		cache.openDatabase().execSQL(sql);
+		cache.reportQuery(sql, null, start, -1);
 	}
 
 	public static void execSql(Cache cache, String sql, Object[] bindArgs) {
+		cache.checkQueryPlan(sql, bindArgs);
+		final long start = System.nanoTime();
 		cache.openDatabase().execSQL(sql, bindArgs);
+		cache.reportQuery(sql, bindArgs, start, -1);
+	}
+
+	/**
+	 * Runs an UPDATE or DELETE on a cached compiled statement, see
+	 * {@link #bindArgs(SQLiteStatement, Object[])} for how arguments are bound.
+	 *
+	 * @return The number of rows changed.
+	 */
+	public static int executeUpdateDelete(Cache cache, String sql, Object[] bindArgs) {
+		cache.checkQueryPlan(sql, bindArgs);
+		final long start = System.nanoTime();
+
+		final StatementCache statements = cache.getStatementCache();
+		final SQLiteStatement statement = statements.acquire(sql);
+		final int count;
+		try {
+			bindArgs(statement, bindArgs);
+			count = executeUpdateDelete(cache.openDatabase(), statement);
+		}
+		finally {
+			statements.release(sql, statement);
+		}
+
+		cache.reportQuery(sql, bindArgs, start, count);
+		return count;
+	}
+
+	/**
+	 * Runs a bound UPDATE or DELETE statement. Before Honeycomb the count is read with
+	 * changes(), the statement must run on the given database and connection.
+	 *
+	 * @return The number of rows changed.
+	 */
+	public static int executeUpdateDelete(SQLiteDatabase db, SQLiteStatement statement) {
+		if (UPDATE_DELETE_SUPPORTED) {
+			return statement.executeUpdateDelete();
+		}
+
+		statement.execute();
+		final SQLiteStatement changes = db.compileStatement("SELECT changes()");
+		try {
+			return (int) changes.simpleQueryForLong();
+		}
+		finally {
+			changes.close();
+		}
 	}
 
 	public static <T extends Model> List<T> rawQuery(Cache cache, Class<? extends Model> type, String sql, String[] selectionArgs) {
+		return rawQuery(cache, type, sql, selectionArgs, false);
+	}
+
+	/**
+	 * @param projection Load partial models when the query doesn't select every column.
+	 */
+	public static <T extends Model> List<T> rawQuery(Cache cache, Class<? extends Model> type, String sql, String[] selectionArgs,
+			boolean projection) {
+		cache.checkQueryPlan(sql, selectionArgs);
+		final long start = System.nanoTime();
 		Cursor cursor = cache.openDatabase().rawQuery(sql, selectionArgs);
-		List<T> entities = processCursor(cache, type, cursor);
+		List<T> entities = processCursor(cache, type, cursor, projection);
 		cursor.close();
 
+		cache.reportQuery(sql, selectionArgs, start, entities.size());
 		return entities;
 	}
 	  
 	public static int intQuery(Cache cache, final String sql, final String[] selectionArgs) {
-        final Cursor cursor = cache.openDatabase().rawQuery(sql, selectionArgs);
-        final int number = processIntCursor(cursor);
-        cursor.close();
+		return (int) longQuery(cache, sql, selectionArgs);
+	}
+
+	/**
+	 * Reads the first column of the first row on a cached compiled statement, without
+	 * opening a cursor. Returns 0 when there are no rows or the value is NULL.
+	 */
+	public static long longQuery(Cache cache, final String sql, final String[] selectionArgs) {
+		cache.checkQueryPlan(sql, selectionArgs);
+		final long start = System.nanoTime();
+
+		final StatementCache statements = cache.getStatementCache();
+		final SQLiteStatement statement = statements.acquire(sql);
+		try {
+			bindArgs(statement, selectionArgs);
+			final long value = statement.simpleQueryForLong();
+			cache.reportQuery(sql, selectionArgs, start, 1);
+			return value;
+		}
+		catch (SQLiteDoneException e) {
+			cache.reportQuery(sql, selectionArgs, start, 0);
+			return 0;
+		}
+		finally {
+			statements.release(sql, statement);
+		}
+	}
+
+	/**
+	 * Reads the first column of the first row as a double, through a cursor so the value
+	 * isn't rounded by a conversion to text. Returns 0 when there are no rows or the value
+	 * is NULL.
+	 *
+	 * @throws IllegalArgumentException If the value is text or a blob. Not checked before
+	 * Honeycomb, where text reads as the number it starts with.
+	 */
+	public static double doubleQuery(Cache cache, final String sql, final String[] selectionArgs) {
+		cache.checkQueryPlan(sql, selectionArgs);
+		final long start = System.nanoTime();
+		final Cursor cursor = cache.openDatabase().rawQuery(sql, selectionArgs);
+		try {
+			if (!cursor.moveToFirst()) {
+				cache.reportQuery(sql, selectionArgs, start, 0);
+				return 0;
+			}
+
+			if (CURSOR_TYPES_SUPPORTED) {
+				final int type = cursor.getType(0);
+				if (type == Cursor.FIELD_TYPE_STRING || type == Cursor.FIELD_TYPE_BLOB) {
+					throw new IllegalArgumentException("The value of " + sql + " isn't numeric.");
+				}
+			}
+
+			final double value = cursor.getDouble(0);
+			cache.reportQuery(sql, selectionArgs, start, 1);
+			return value;
+		}
+		finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Reads the first column of the first row on a cached compiled statement, without
+	 * opening a cursor. Returns null when there are no rows or the value is NULL.
+	 */
+	public static String stringQuery(Cache cache, final String sql, final String[] selectionArgs) {
+		cache.checkQueryPlan(sql, selectionArgs);
+		final long start = System.nanoTime();
+
+		final StatementCache statements = cache.getStatementCache();
+		final SQLiteStatement statement = statements.acquire(sql);
+		try {
+			bindArgs(statement, selectionArgs);
+			final String value = statement.simpleQueryForString();
+			cache.reportQuery(sql, selectionArgs, start, 1);
+			return value;
+		}
+		catch (SQLiteDoneException e) {
+			cache.reportQuery(sql, selectionArgs, start, 0);
+			return null;
+		}
+		finally {
+			statements.release(sql, statement);
+		}
+	}
 
-        return number;
+	/**
+	 * Reads the first column of every row, NULL values read as 0.
+	 */
+	public static long[] longArrayQuery(Cache cache, final String sql, final String[] selectionArgs) {
+		cache.checkQueryPlan(sql, selectionArgs);
+		final long start = System.nanoTime();
+		final Cursor cursor = cache.openDatabase().rawQuery(sql, selectionArgs);
+		try {
+			final long[] values = new long[cursor.getCount()];
+			for (int i = 0; cursor.moveToNext(); i++) {
+				values[i] = cursor.getLong(0);
+			}
+			cache.reportQuery(sql, selectionArgs, start, values.length);
+			return values;
+		}
+		finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Reads the first column of every row, NULL values read as 0.
+	 */
+	public static int[] intArrayQuery(Cache cache, final String sql, final String[] selectionArgs) {
+		cache.checkQueryPlan(sql, selectionArgs);
+		final long start = System.nanoTime();
+		final Cursor cursor = cache.openDatabase().rawQuery(sql, selectionArgs);
+		try {
+			final int[] values = new int[cursor.getCount()];
+			for (int i = 0; cursor.moveToNext(); i++) {
+				values[i] = cursor.getInt(0);
+			}
+			cache.reportQuery(sql, selectionArgs, start, values.length);
+			return values;
+		}
+		finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Reads the first column of every row, NULL values read as 0.
+	 */
+	public static double[] doubleArrayQuery(Cache cache, final String sql, final String[] selectionArgs) {
+		cache.checkQueryPlan(sql, selectionArgs);
+		final long start = System.nanoTime();
+		final Cursor cursor = cache.openDatabase().rawQuery(sql, selectionArgs);
+		try {
+			final double[] values = new double[cursor.getCount()];
+			for (int i = 0; cursor.moveToNext(); i++) {
+				values[i] = cursor.getDouble(0);
+			}
+			cache.reportQuery(sql, selectionArgs, start, values.length);
+			return values;
+		}
+		finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Reads the first column of every row, NULL values read as null.
+	 */
+	public static String[] stringArrayQuery(Cache cache, final String sql, final String[] selectionArgs) {
+		cache.checkQueryPlan(sql, selectionArgs);
+		final long start = System.nanoTime();
+		final Cursor cursor = cache.openDatabase().rawQuery(sql, selectionArgs);
+		try {
+			final String[] values = new String[cursor.getCount()];
+			for (int i = 0; cursor.moveToNext(); i++) {
+				values[i] = cursor.getString(0);
+			}
+			cache.reportQuery(sql, selectionArgs, start, values.length);
+			return values;
+		}
+		finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Reads rows of a key and a count into a map, in the order of the rows. NULL keys
+	 * map to null.
+	 */
+	public static Map<String, Long> groupedLongQuery(Cache cache, final String sql, final String[] selectionArgs) {
+		cache.checkQueryPlan(sql, selectionArgs);
+		final long start = System.nanoTime();
+		final Cursor cursor = cache.openDatabase().rawQuery(sql, selectionArgs);
+		try {
+			final Map<String, Long> values = new LinkedHashMap<String, Long>();
+			while (cursor.moveToNext()) {
+				values.put(cursor.getString(0), cursor.getLong(1));
+			}
+			cache.reportQuery(sql, selectionArgs, start, values.size());
+			return values;
+		}
+		finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Describes an insert of content values as SQL, for {@link com.activeandroid.QueryListener}s.
+	 */
+	public static String toInsertSql(String table, ContentValues values) {
+		final StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
+		boolean first = true;
+		for (Map.Entry<String, Object> entry : values.valueSet()) {
+			if (!first) {
+				sql.append(", ");
+			}
+			sql.append(entry.getKey());
+			first = false;
+		}
+
+		return sql.append(") VALUES (").append(createPlaceholders(values.size())).append(")").toString();
+	}
+
+	/**
+	 * Describes an update of content values as SQL, for {@link com.activeandroid.QueryListener}s.
+	 */
+	public static String toUpdateSql(String table, ContentValues values, String where) {
+		final StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+		boolean first = true;
+		for (Map.Entry<String, Object> entry : values.valueSet()) {
+			if (!first) {
+				sql.append(", ");
+			}
+			sql.append(entry.getKey()).append("=?");
+			first = false;
+		}
+
+		if (where != null) {
+			sql.append(" WHERE ").append(where);
+		}
+
+		return sql.toString();
+	}
+
+	/**
+	 * @return The content values followed by the where arguments, in the order of
+	 * {@link #toInsertSql(String, ContentValues)} and {@link #toUpdateSql(String, ContentValues, String)}.
+	 */
+	public static Object[] toBindArgs(ContentValues values, String[] whereArgs) {
+		final List<Object> args = new ArrayList<Object>(values.size());
+		for (Map.Entry<String, Object> entry : values.valueSet()) {
+			args.add(entry.getValue());
+		}
+
+		if (whereArgs != null) {
+			args.addAll(Arrays.asList(whereArgs));
+		}
+
+		return args.toArray();
+	}
+
+	/**
+	 * Runs <code>EXPLAIN QUERY PLAN</code> on a statement with its arguments.
+	 */
+	public static QueryPlan explainQuery(Cache cache, final String sql, final String[] selectionArgs) {
+		final Cursor cursor = cache.openDatabase().rawQuery("EXPLAIN QUERY PLAN " + sql, selectionArgs);
+		try {
+			// The detail is the last column, the layout of the others changed in SQLite 3.24.
+			final int detailIndex = cursor.getColumnCount() - 1;
+			final List<QueryPlan.Step> steps = new ArrayList<QueryPlan.Step>();
+			while (cursor.moveToNext()) {
+				steps.add(new QueryPlan.Step(cursor.getInt(0), cursor.getInt(1), cursor.getString(detailIndex)));
+			}
+			return new QueryPlan(sql, steps);
+		}
+		finally {
+			cursor.close();
+		}
 	}
 
 	public static <T extends Model> T rawQuerySingle(Cache cache, Class<? extends Model> type, String sql, String[] selectionArgs) {
@@ -128,6 +464,32 @@ public final class SQLiteUtils {
 		return null;
 	}
 
+	/**
+	 * @return Whether the SQLite library supports <code>INSERT ... ON CONFLICT DO UPDATE</code>,
+	 * added in SQLite 3.24.0.
+	 */
+	public static synchronized boolean isUpsertSupported(SQLiteDatabase db) {
+		if (sUpsertSupported == null) {
+			final SQLiteStatement statement = db.compileStatement("SELECT sqlite_version()");
+			try {
+				final String[] version = statement.simpleQueryForString().split("\\.");
+				final int major = Integer.parseInt(version[0]);
+				final int minor = version.length > 1 ? Integer.parseInt(version[1]) : 0;
+
+				sUpsertSupported = major > 3 || (major == 3 && minor >= 24);
+			}
+			catch (NumberFormatException e) {
+				Log.e("Couldn't parse the SQLite version.", e);
+				sUpsertSupported = false;
+			}
+			finally {
+				statement.close();
+			}
+		}
+
+		return sUpsertSupported;
+	}
+
 	// Database creation
 
 	public static ArrayList<String> createUniqueDefinition(TableInfo tableInfo) {
@@ -237,6 +599,14 @@ public final class SQLiteUtils {
 	}
 
 	public static String createTableDefinition(Cache cache, TableInfo tableInfo) {
+		final TableAdapter<?> tableAdapter = tableInfo.getTableAdapter();
+		if (tableAdapter != null && FOREIGN_KEYS_SUPPORTED && !hasTypeSerializers(tableInfo)) {
+			final String definition = tableAdapter.createTableDefinition();
+			if (definition != null) {
+				return definition;
+			}
+		}
+
 		final ArrayList<String> definitions = new ArrayList<String>();
 
 		for (Field field : tableInfo.getFields()) {
@@ -265,12 +635,21 @@ public final class SQLiteUtils {
 			type = typeSerializer.getSerializedType();
 		}
 
+		// Model and Lazy<Model> columns both hold the id of the referenced row.
+		Class<? extends Model> referencedType = null;
+		if (ReflectionUtils.isModel(type)) {
+			referencedType = (Class<? extends Model>) type;
+		}
+		else if (typeSerializer == null) {
+			referencedType = ReflectionUtils.getReferencedType(field);
+		}
+
 		if (TYPE_MAP.containsKey(type)) {
 			definition.append(name);
 			definition.append(" ");
 			definition.append(TYPE_MAP.get(type).toString());
 		}
-		else if (ReflectionUtils.isModel(type)) {
+		else if (referencedType != null) {
 			definition.append(name);
 			definition.append(" ");
 			definition.append(SQLiteType.INTEGER.toString());
@@ -303,9 +682,9 @@ public final class SQLiteUtils {
 				}
 			}
 
-			if (FOREIGN_KEYS_SUPPORTED && ReflectionUtils.isModel(type)) {
+			if (FOREIGN_KEYS_SUPPORTED && referencedType != null) {
 				definition.append(" REFERENCES ");
-				definition.append(cache.getTableInfo((Class<? extends Model>) type).getTableName());
+				definition.append(cache.getTableInfo(referencedType).getTableName());
 				definition.append("("+tableInfo.getIdName()+")");
 				definition.append(" ON DELETE ");
 				definition.append(column.onDelete().toString().replace("_", " "));
@@ -320,54 +699,46 @@ public final class SQLiteUtils {
 		return definition.toString();
 	}
 
-	@SuppressWarnings("unchecked")
 	public static <T extends Model> List<T> processCursor(Cache cache, Class<? extends Model> type, Cursor cursor) {
+		return processCursor(cache, type, cursor, false);
+	}
+
+	/**
+	 * @param projection Mark the models partial when the cursor misses some of their columns,
+	 * see {@link Model#loadFromCursor(Cursor, int[], ForeignKeyResolver, boolean)}.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends Model> List<T> processCursor(Cache cache, Class<? extends Model> type, Cursor cursor,
+			boolean projection) {
 		TableInfo tableInfo = cache.getTableInfo(type);
-		String idName = tableInfo.getIdName();
 		final List<T> entities = new ArrayList<T>();
 
-		Constructor<?> parameterizedConstructor = null;
-		Constructor<?> simpleConstructor = null;
-
-		try {
-			parameterizedConstructor = type.getConstructor(Cache.class);
-		} catch (NoSuchMethodException e) {
-			try {
-				simpleConstructor = type.getConstructor();
-			} catch (NoSuchMethodException e1) {
-
-				throw new RuntimeException(
-						"Your model " + type.getName() + " does not define a default " +
-								"constructor. Or a constructor with a Cache as a parameter. " +
-								"Either of these contructors is required for " +
-								"now in ActiveAndroid models, as the process to " +
-								"populate the ORM model is : " +
-								"1. instantiate the model with the given or the default Cache object" +
-								"2. populate fields"
-				);
-			}
-		}
-
 		try {
 			if (cursor.moveToFirst()) {
-                /**
-                 * Obtain the columns ordered to fix issue #106 (https://github.com/pardom/ActiveAndroid/issues/106)
-                 * when the cursor have multiple columns with same name obtained from join tables.
-                 */
-                List<String> columnsOrdered = new ArrayList<String>(Arrays.asList(cursor.getColumnNames()));
+				final int[] columnIndexes = tableInfo.getColumnIndexes(cursor);
+				final int idColumnIndex = tableInfo.getIdColumnIndex(columnIndexes);
+				final ForeignKeyResolver resolver = new ForeignKeyResolver(cache);
 				do {
 
+					// Cached instances are refreshed so every reference sees the current row.
 					Model entity = null;
-					if(parameterizedConstructor != null) {
-						entity = (T) parameterizedConstructor.newInstance(cache);
-					} else {
-						entity = (T) simpleConstructor.newInstance();
+					if (idColumnIndex >= 0 && !cursor.isNull(idColumnIndex)) {
+						entity = cache.getEntity(type, cursor.getLong(idColumnIndex));
 					}
 
-					entity.loadFromCursor(cursor);
+					if (entity == null) {
+						entity = tableInfo.newInstance(cache);
+					}
+
+					entity.loadFromCursor(cursor, columnIndexes, resolver, projection);
+					if (!entity.isPartial()) {
+						cache.addEntity(entity);
+					}
 					entities.add((T) entity);
 				}
 				while (cursor.moveToNext());
+
+				resolver.resolve();
 			}
 
 		} catch (Exception e) {
@@ -377,12 +748,87 @@ public final class SQLiteUtils {
 		return entities;
 	}
 
-	private static int processIntCursor(final Cursor cursor) {
-        if (cursor.moveToFirst()) {
-            return cursor.getInt(0);
-	    }
-        return 0;
-    }
+	/**
+	 * Wraps the cursor in an iterator loading one model per row. Foreign keys are loaded
+	 * row by row, through the identity map.
+	 *
+	 * @param reuseInstance Load every row into the same model instance, for read-only scans.
+	 * The instance is kept out of the identity map.
+	 */
+	public static <T extends Model> CloseableIterator<T> iterateCursor(Cache cache, Class<? extends Model> type,
+			Cursor cursor, boolean reuseInstance) {
+
+		return new CursorIterator<T>(cache, cache.getTableInfo(type), cursor, reuseInstance);
+	}
+
+	private static boolean hasTypeSerializers(TableInfo tableInfo) {
+		for (ColumnBinder binder : tableInfo.getColumnBinders()) {
+			if (binder.getTypeSerializer() != null) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static void bindArgs(SQLiteStatement statement, String[] args) {
+		if (args == null) {
+			return;
+		}
+
+		for (int i = 0; i < args.length; i++) {
+			statement.bindString(i + 1, args[i]);
+		}
+	}
+
+	/**
+	 * Binds the arguments with the storage class of their type: integers and booleans as
+	 * INTEGER, floating point numbers as REAL, byte arrays as BLOB and anything else as TEXT.
+	 */
+	public static void bindArgs(SQLiteStatement statement, Object[] args) {
+		statement.clearBindings();
+		if (args == null) {
+			return;
+		}
+
+		for (int i = 0; i < args.length; i++) {
+			final Object arg = args[i];
+
+			if (arg == null) {
+				statement.bindNull(i + 1);
+			}
+			else if (arg instanceof Boolean) {
+				statement.bindLong(i + 1, (Boolean) arg ? 1 : 0);
+			}
+			else if (arg instanceof Long || arg instanceof Integer || arg instanceof Short || arg instanceof Byte) {
+				statement.bindLong(i + 1, ((Number) arg).longValue());
+			}
+			else if (arg instanceof Double || arg instanceof Float) {
+				statement.bindDouble(i + 1, ((Number) arg).doubleValue());
+			}
+			else if (arg instanceof byte[]) {
+				statement.bindBlob(i + 1, (byte[]) arg);
+			}
+			else {
+				statement.bindString(i + 1, arg.toString());
+			}
+		}
+	}
+
+	/**
+	 * @return A comma separated list of <code>count</code> bind placeholders.
+	 */
+	public static String createPlaceholders(int count) {
+		final StringBuilder placeholders = new StringBuilder(count * 2);
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				placeholders.append(",");
+			}
+			placeholders.append("?");
+		}
+
+		return placeholders.toString();
+	}
 
 	public static List<String> lexSqlScript(String sqlScript) {
 		ArrayList<String> sl = new ArrayList<String>();
@@ -415,4 +861,99 @@ public final class SQLiteUtils {
 
 		return sl;
 	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// INNER CLASSES
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private static final class CursorIterator<T extends Model> implements CloseableIterator<T> {
+		private final Cache mCache;
+		private final Class<? extends Model> mType;
+		private final TableInfo mTableInfo;
+		private final Cursor mCursor;
+		private final int[] mColumnIndexes;
+		private final int mIdColumnIndex;
+		private final boolean mReuseInstance;
+
+		private Model mInstance;
+		private boolean mHasNext;
+
+		CursorIterator(Cache cache, TableInfo tableInfo, Cursor cursor, boolean reuseInstance) {
+			mCache = cache;
+			mType = tableInfo.getType();
+			mTableInfo = tableInfo;
+			mCursor = cursor;
+			mColumnIndexes = tableInfo.getColumnIndexes(cursor);
+			mIdColumnIndex = tableInfo.getIdColumnIndex(mColumnIndexes);
+			mReuseInstance = reuseInstance;
+
+			mHasNext = cursor.moveToFirst();
+			if (!mHasNext) {
+				close();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return mHasNext;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T next() {
+			if (!mHasNext) {
+				throw new NoSuchElementException();
+			}
+
+			final Model entity;
+			try {
+				entity = getInstance();
+			}
+			catch (RuntimeException e) {
+				close();
+				throw e;
+			}
+
+			entity.loadFromCursor(mCursor, mColumnIndexes);
+			if (!mReuseInstance && !entity.isPartial()) {
+				mCache.addEntity(entity);
+			}
+
+			mHasNext = mCursor.moveToNext();
+			if (!mHasNext) {
+				close();
+			}
+
+			return (T) entity;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void close() {
+			mHasNext = false;
+			if (!mCursor.isClosed()) {
+				mCursor.close();
+			}
+		}
+
+		private Model getInstance() {
+			if (mReuseInstance) {
+				if (mInstance == null) {
+					mInstance = mTableInfo.newInstance(mCache);
+				}
+				return mInstance;
+			}
+
+			Model entity = null;
+			if (mIdColumnIndex >= 0 && !mCursor.isNull(mIdColumnIndex)) {
+				entity = mCache.getEntity(mType, mCursor.getLong(mIdColumnIndex));
+			}
+
+			return entity != null ? entity : mTableInfo.newInstance(mCache);
+		}
+	}
 }
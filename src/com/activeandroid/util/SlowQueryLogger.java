@@ -0,0 +1,67 @@
+package com.activeandroid.util;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import com.activeandroid.QueryListener;
+
+/**
+ * Logs statements slower than a threshold with the stack trace of the caller, e.g.
+ * <code>ActiveAndroid.getCache().addQueryListener(new SlowQueryLogger(50));</code>
+ */
+public final class SlowQueryLogger implements QueryListener {
+	//////////////////////////////////////////////////////////////////////////////////////
+	// PRIVATE MEMBERS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	private final long mThresholdNanos;
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTORS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	public SlowQueryLogger(long thresholdMillis) {
+		mThresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// OVERRIDEN METHODS
+	//////////////////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public void onQuery(String sql, Object[] bindArgs, long durationNanos, int rowCount, Thread thread) {
+		if (durationNanos < mThresholdNanos) {
+			return;
+		}
+
+		final StringBuilder message = new StringBuilder("Slow query: ");
+		message.append(TimeUnit.NANOSECONDS.toMillis(durationNanos)).append(" ms");
+		if (rowCount != -1) {
+			message.append(", ").append(rowCount).append(" rows");
+		}
+		message.append(" on ").append(thread.getName()).append(": ").append(sql);
+		if (bindArgs != null && bindArgs.length > 0) {
+			message.append(" ").append(Arrays.toString(bindArgs));
+		}
+
+		// Registering the logger is opt-in, so log even when library logging is disabled.
+		// Listeners run on the calling thread, so this is the stack of the caller.
+		android.util.Log.w("ActiveAndroid", message.toString(), new Throwable("Slow query"));
+	}
+}
@@ -0,0 +1,143 @@
+package com.activeandroid.test;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.os.Looper;
+
+import com.activeandroid.ActiveAndroid;
+import com.activeandroid.AsyncCallback;
+import com.activeandroid.DatabaseExecutor;
+import com.activeandroid.query.Select;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncTest extends ActiveAndroidTestCase {
+    private static final long TIMEOUT_SECONDS = 5;
+
+    /**
+     * Callbacks should be delivered on the main thread with the result of the task.
+     */
+    public void testCallbackOnMainThread() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final List<Object> results = Collections.synchronizedList(new ArrayList<Object>());
+
+        MockModel model = new MockModel();
+        model.saveAsync(new AsyncCallback<Long>() {
+            @Override
+            public void onResult(Long result) {
+                results.add(Looper.myLooper() == Looper.getMainLooper());
+                results.add(result);
+                latch.countDown();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                results.add(error);
+                latch.countDown();
+            }
+        });
+
+        assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(Boolean.TRUE, results.get(0));
+        assertEquals(model.getId(), results.get(1));
+        assertTrue(new Select().from(MockModel.class).where("_id = ?", model.getId()).exists());
+    }
+
+    /**
+     * Writes should run one at a time, in submission order.
+     */
+    public void testWritesSerialized() throws Exception {
+        final DatabaseExecutor executor = ActiveAndroid.getCache().getExecutor();
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        final int[] running = new int[1];
+
+        for (int i = 0; i < 5; i++) {
+            final int index = i;
+            futures.add(executor.write(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    synchronized (running) {
+                        assertEquals(0, running[0]);
+                        running[0]++;
+                    }
+                    Thread.sleep(10);
+                    order.add(index);
+                    synchronized (running) {
+                        running[0]--;
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        for (Future<Void> future : futures) {
+            future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        assertEquals(5, order.size());
+        for (int i = 0; i < order.size(); i++) {
+            assertEquals(Integer.valueOf(i), order.get(i));
+        }
+    }
+
+    /**
+     * A failing task should surface its exception through the future and the callback.
+     */
+    public void testErrorPropagated() throws Exception {
+        final DatabaseExecutor executor = ActiveAndroid.getCache().getExecutor();
+        final IllegalStateException failure = new IllegalStateException("failure");
+        final CountDownLatch latch = new CountDownLatch(1);
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+
+        Future<Void> future = executor.write(new Callable<Void>() {
+            @Override
+            public Void call() {
+                throw failure;
+            }
+        }, new AsyncCallback<Void>() {
+            @Override
+            public void onResult(Void result) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                errors.add(error);
+                latch.countDown();
+            }
+        });
+
+        try {
+            future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            fail("The failure should be propagated.");
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+
+        assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, errors.size());
+        assertSame(failure, errors.get(0));
+    }
+}
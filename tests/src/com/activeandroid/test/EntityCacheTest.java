@@ -0,0 +1,66 @@
+package com.activeandroid.test;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.activeandroid.EntityCache;
+import com.activeandroid.Model;
+
+public class EntityCacheTest extends ActiveAndroidTestCase {
+    /**
+     * Hits, misses and evictions should be counted, evictions only when making room.
+     */
+    public void testCounters() {
+        EntityCache cache = new EntityCache(2, false);
+        cache.put("a", new MockModel());
+        cache.put("b", new MockModel());
+        cache.put("c", new MockModel());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.size());
+
+        assertNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    /**
+     * In weak mode a model evicted from the strong tier should still be returned while
+     * the application holds it.
+     */
+    public void testWeakMode() {
+        EntityCache cache = new EntityCache(1, true);
+        assertTrue(cache.isWeak());
+
+        Model first = new MockModel();
+        Model second = new MockModel();
+        cache.put("a", first);
+        cache.put("b", second);
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.size());
+
+        assertSame(first, cache.get("a"));
+        assertSame(second, cache.get("b"));
+        assertEquals(2, cache.getHitCount());
+
+        cache.remove("a");
+        assertNull(cache.get("a"));
+    }
+}
@@ -0,0 +1,113 @@
+package com.activeandroid.test;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.activeandroid.ActiveAndroid;
+import com.activeandroid.Cache;
+import com.activeandroid.Lazy;
+import com.activeandroid.Model;
+import com.activeandroid.TableInfo;
+import com.activeandroid.annotation.Column;
+import com.activeandroid.annotation.Table;
+import com.activeandroid.util.SQLiteUtils;
+
+import java.lang.reflect.Field;
+
+public class LazyTest extends ActiveAndroidTestCase {
+    /**
+     * A Lazy column should store the id of the referenced row.
+     */
+    public void testSavesId() {
+        MockModel target = new MockModel();
+        target.save();
+
+        LazyMockModel referrer = new LazyMockModel();
+        referrer.lazyField = Lazy.of(target);
+        referrer.save();
+
+        long storedId = SQLiteUtils.longQuery(ActiveAndroid.getCache(), "SELECT lazyField FROM LazyMockModel WHERE _id = ?",
+                new String[] { referrer.getId().toString() });
+        assertEquals(target.getId().longValue(), storedId);
+    }
+
+    /**
+     * The referenced model should be loaded on the first get() only.
+     */
+    public void testLoadsOnFirstGet() {
+        MockModel target = new MockModel();
+        target.intField = 7;
+        target.save();
+
+        LazyMockModel referrer = new LazyMockModel();
+        referrer.lazyField = Lazy.of(target);
+        referrer.save();
+
+        ActiveAndroid.clearCache();
+
+        LazyMockModel loaded = Model.load(LazyMockModel.class, referrer.getId());
+        assertFalse(loaded.lazyField.isLoaded());
+        assertEquals(target.getId(), loaded.lazyField.getId());
+        assertFalse(loaded.lazyField.isLoaded());
+
+        MockModel first = loaded.lazyField.get();
+        assertTrue(loaded.lazyField.isLoaded());
+        assertEquals(7, first.intField);
+        assertSame(first, loaded.lazyField.get());
+    }
+
+    /**
+     * A Lazy column should be declared as a foreign key to the referenced table.
+     */
+    public void testColumnDefinition() throws Exception {
+        Cache cache = ActiveAndroid.getCache();
+        TableInfo tableInfo = cache.getTableInfo(LazyMockModel.class);
+        Field field = LazyMockModel.class.getField("lazyField");
+
+        String definition = SQLiteUtils.createColumnDefinition(cache, tableInfo, field);
+        if (SQLiteUtils.FOREIGN_KEYS_SUPPORTED) {
+            assertEquals("lazyField INTEGER REFERENCES MockModel(_id) ON DELETE NO ACTION ON UPDATE NO ACTION",
+                    definition);
+        }
+        else {
+            assertEquals("lazyField INTEGER", definition);
+        }
+    }
+
+    /**
+     * Getting a reference to a row that no longer exists should return null.
+     */
+    public void testDeletedTarget() {
+        MockModel target = new MockModel();
+        target.save();
+        Long id = target.getId();
+        target.delete();
+
+        Lazy<MockModel> lazy = new Lazy<MockModel>(MockModel.class, id);
+        assertEquals(id, lazy.getId());
+        assertNull(lazy.get());
+        assertTrue(lazy.isLoaded());
+    }
+
+    /**
+     * Mock model with a lazily loaded reference.
+     */
+    @Table(name = "LazyMockModel")
+    public static class LazyMockModel extends Model {
+        @Column
+        public Lazy<MockModel> lazyField;
+    }
+}
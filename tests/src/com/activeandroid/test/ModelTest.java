@@ -16,6 +16,7 @@
 
 package com.activeandroid.test;
 
+import com.activeandroid.ActiveAndroid;
 import com.activeandroid.Cache;
 import com.activeandroid.Model;
 import com.activeandroid.TableInfo;
@@ -25,6 +26,7 @@ import com.activeandroid.query.Select;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
@@ -229,12 +231,261 @@ public class ModelTest extends ActiveAndroidTestCase {
 
     }
 
+    /**
+     * Rows referencing the same row should share the instance loaded for it.
+     */
+    public void testForeignKeysResolvedOnce() {
+        ParentJoinMockModel parent = new ParentJoinMockModel();
+        parent.intField = 1;
+        parent.save();
+
+        ChildMockModel child1 = new ChildMockModel();
+        child1.parent = parent;
+        child1.save();
+
+        ChildMockModel child2 = new ChildMockModel();
+        child2.parent = parent;
+        child2.save();
+
+        List<ChildMockModel> result = new Select().from(ChildMockModel.class)
+                .where("parent = ?", parent.getId()).execute();
+
+        assertEquals(2, result.size());
+        assertEquals(parent, result.get(0).parent);
+        assertSame(result.get(0).parent, result.get(1).parent);
+    }
+
+    /**
+     * Bulk saves should insert new models, assign their ids and update existing ones.
+     */
+    public void testSaveAll() {
+        List<MockModel> models = new ArrayList<MockModel>();
+        for (int i = 0; i < 3; i++) {
+            MockModel model = new MockModel();
+            model.intField = i;
+            models.add(model);
+        }
+
+        Model.saveAll(models);
+
+        for (MockModel model : models) {
+            assertNotNull(model.getId());
+            model.intField += 10;
+        }
+
+        Model.saveAll(models);
+
+        for (MockModel model : models) {
+            assertEquals(model.intField, Model.load(MockModel.class, model.getId()).intField);
+        }
+    }
+
+    /**
+     * Models of change tracking tables should only report changes made after loading.
+     */
+    public void testTrackChanges() {
+        TrackedMockModel model = new TrackedMockModel();
+        model.intField = 1;
+        assertTrue(model.hasChanges());
+        model.save();
+
+        TrackedMockModel loaded = Model.load(TrackedMockModel.class, model.getId());
+        assertFalse(loaded.hasChanges());
+
+        loaded.intField = 2;
+        assertTrue(loaded.hasChanges());
+        loaded.save();
+        assertFalse(loaded.hasChanges());
+
+        assertEquals(2, Model.load(TrackedMockModel.class, model.getId()).intField);
+    }
+
+    /**
+     * Loading a row should return the instance cached for it until it's deleted.
+     */
+    public void testIdentityMap() {
+        MockModel model = new MockModel();
+        model.save();
+
+        assertSame(model, Model.load(MockModel.class, model.getId()));
+        assertSame(model, new Select().from(MockModel.class).where("_id = ?", model.getId()).executeSingle());
+
+        Long id = model.getId();
+        model.delete();
+        assertNull(Model.load(MockModel.class, id));
+    }
+
+    /**
+     * Re-querying a cached model should refresh it, including columns set to NULL.
+     */
+    public void testIdentityMapRefreshesNullColumns() {
+        MockModel model = new MockModel();
+        model.dateField = new Date(1000);
+        model.doubleField = 1.5;
+        model.save();
+
+        ActiveAndroid.getDatabase().execSQL("UPDATE MockModel SET dateField = NULL, doubleField = NULL WHERE _id = "
+                + model.getId());
+
+        MockModel loaded = new Select().from(MockModel.class).where("_id = ?", model.getId()).executeSingle();
+        assertSame(model, loaded);
+        assertNull(loaded.dateField);
+        assertEquals(0.0, loaded.doubleField, 0);
+    }
+
+    /**
+     * Upserting a model conflicting on a unique column should update the existing row.
+     */
+    public void testUpsert() {
+        UniqueMockModel first = new UniqueMockModel();
+        first.remoteId = 42;
+        first.name = "first";
+        Long id = first.upsert();
+
+        UniqueMockModel second = new UniqueMockModel();
+        second.remoteId = 42;
+        second.name = "second";
+
+        assertEquals(id, second.upsert("remoteId"));
+        assertEquals(1, new Select().from(UniqueMockModel.class).count());
+        assertEquals("second", Model.load(UniqueMockModel.class, id).name);
+    }
+
+    /**
+     * Deleting more ids than SQLite can bind at once should delete all of them.
+     */
+    public void testDeleteAll() {
+        List<MockModel> models = new ArrayList<MockModel>();
+        for (int i = 0; i < 1500; i++) {
+            models.add(new MockModel());
+        }
+        Model.saveAll(models);
+
+        long[] ids = new long[models.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = models.get(i).getId();
+        }
+
+        assertEquals(ids.length, new Select().from(MockModel.class).whereIdIn(ids).count());
+
+        Model.deleteAll(MockModel.class, ids);
+        assertEquals(0, new Select().from(MockModel.class).whereIdIn(ids).count());
+    }
+
+    /**
+     * Projections should skip string columns and load partial models that refuse saves.
+     */
+    public void testProjection() {
+        UniqueMockModel model = new UniqueMockModel();
+        model.remoteId = 7;
+        model.name = "name";
+        model.save();
+        ActiveAndroid.clearCache();
+
+        List<UniqueMockModel> result = new Select().from(UniqueMockModel.class)
+                .where("remoteId = ?", 7).executeProjection();
+
+        assertEquals(1, result.size());
+        UniqueMockModel partial = result.get(0);
+        assertTrue(partial.isPartial());
+        assertEquals(model.getId(), partial.getId());
+        assertEquals(7, partial.remoteId);
+        assertNull(partial.name);
+
+        try {
+            partial.save();
+            fail("Partial models shouldn't be saved.");
+        } catch (IllegalStateException e) {
+            // Expected.
+        }
+
+        partial.remoteId = 8;
+        partial.allowPartialSave();
+        partial.save();
+        assertEquals("name", new Select().from(UniqueMockModel.class).where("remoteId = ?", 8).<UniqueMockModel>executeSingle().name);
+    }
+
+    /**
+     * Selecting a column list without a projection shouldn't make the models partial.
+     */
+    public void testColumnListNotPartial() {
+        UniqueMockModel model = new UniqueMockModel();
+        model.remoteId = 9;
+        model.name = "name";
+        model.save();
+        ActiveAndroid.clearCache();
+
+        UniqueMockModel loaded = new Select("_id", "remoteId").from(UniqueMockModel.class)
+                .where("remoteId = ?", 9).executeSingle();
+
+        assertFalse(loaded.isPartial());
+        loaded.remoteId = 10;
+        loaded.save();
+        assertEquals(1, new Select().from(UniqueMockModel.class).where("remoteId = ?", 10).count());
+    }
+
+    /**
+     * Upserting a partial model should be refused unless allowed, and keep the unloaded columns.
+     */
+    public void testUpsertPartial() {
+        UniqueMockModel model = new UniqueMockModel();
+        model.remoteId = 9;
+        model.name = "name";
+        model.save();
+        ActiveAndroid.clearCache();
+
+        UniqueMockModel partial = new Select().from(UniqueMockModel.class)
+                .where("remoteId = ?", 9).<UniqueMockModel>executeProjection().get(0);
+
+        try {
+            partial.upsert();
+            fail("Partial models shouldn't be upserted.");
+        } catch (IllegalStateException e) {
+            // Expected.
+        }
+
+        try {
+            Model.upsertAll(Arrays.asList(partial));
+            fail("Partial models shouldn't be upserted.");
+        } catch (IllegalStateException e) {
+            // Expected.
+        }
+
+        partial.allowPartialSave();
+        assertEquals(model.getId(), partial.upsert());
+        assertEquals("name", new Select().from(UniqueMockModel.class).where("remoteId = ?", 9).<UniqueMockModel>executeSingle().name);
+    }
+
 	/**
 	 * Mock model as we need 2 different model classes.
 	 */
 	@Table(name = "AnotherMockTable")
 	public static class AnotherMockModel extends Model {}
 
+    /**
+     * Mock model to test change tracking.
+     */
+    @Table(name = "TrackedMockModel", trackChanges = true)
+    public static class TrackedMockModel extends Model {
+        @Column
+        public int intField;
+
+        @Column
+        public String stringField;
+    }
+
+    /**
+     * Mock model to test upserts.
+     */
+    @Table(name = "UniqueMockModel")
+    public static class UniqueMockModel extends Model {
+        @Column(unique = true)
+        public int remoteId;
+
+        @Column
+        public String name;
+    }
+
     /**
      * Mock model to test joins with same names.
      * It's a copy from MockModel.
@@ -0,0 +1,59 @@
+package com.activeandroid.test;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.database.sqlite.SQLiteStatement;
+
+import com.activeandroid.ActiveAndroid;
+import com.activeandroid.Model;
+import com.activeandroid.StatementCache;
+import com.activeandroid.util.SQLiteUtils;
+
+public class StatementCacheTest extends ActiveAndroidTestCase {
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM MockModel";
+
+    /**
+     * Released statements should be reused.
+     */
+    public void testReuse() {
+        StatementCache statements = ActiveAndroid.getCache().getStatementCache();
+
+        SQLiteStatement statement = statements.acquire(COUNT_SQL);
+        statements.release(COUNT_SQL, statement);
+        assertSame(statement, statements.acquire(COUNT_SQL));
+        statements.release(COUNT_SQL, statement);
+    }
+
+    /**
+     * A statement acquired before clear() should be closed on release, not cached again.
+     */
+    public void testReleaseAfterClear() {
+        Model.truncate(MockModel.class);
+        new MockModel().save();
+
+        StatementCache statements = ActiveAndroid.getCache().getStatementCache();
+        SQLiteStatement statement = statements.acquire(COUNT_SQL);
+        statements.clear();
+        statements.release(COUNT_SQL, statement);
+
+        SQLiteStatement next = statements.acquire(COUNT_SQL);
+        assertNotSame(statement, next);
+        statements.release(COUNT_SQL, next);
+
+        assertEquals(1, SQLiteUtils.longQuery(ActiveAndroid.getCache(), COUNT_SQL, null));
+    }
+}
@@ -0,0 +1,171 @@
+package com.activeandroid.test;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.database.Cursor;
+
+import com.activeandroid.ActiveAndroid;
+import com.activeandroid.Lazy;
+import com.activeandroid.Model;
+import com.activeandroid.TableAdapter;
+import com.activeandroid.TableInfo;
+import com.activeandroid.annotation.Column;
+import com.activeandroid.annotation.Table;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Models persisted through a generated {@link TableAdapter} should behave exactly like
+ * models persisted through reflection.
+ */
+public class TableAdapterTest extends ActiveAndroidTestCase {
+    /**
+     * The processor should generate an adapter for accessible models only.
+     */
+    public void testAdapterGenerated() {
+        assertNotNull(TableAdapter.forType(AdapterMockModel.class));
+        assertNull(TableAdapter.forType(ReflectiveMockModel.class));
+    }
+
+    /**
+     * Both paths should create the same columns.
+     */
+    public void testSameTableDefinition() {
+        assertEquals(getColumns("ReflectiveMockModel"), getColumns("AdapterMockModel"));
+    }
+
+    /**
+     * Both paths should save and load the same values.
+     */
+    public void testSameSaveAndLoad() {
+        MockModel reference = new MockModel();
+        reference.save();
+        Date date = new Date(1234567890L);
+
+        AdapterMockModel adapted = new AdapterMockModel();
+        adapted.intField = 3;
+        adapted.stringField = "three";
+        adapted.dateField = date;
+        adapted.modelField = reference;
+        adapted.lazyField = Lazy.of(reference);
+        adapted.save();
+
+        ReflectiveMockModel reflected = new ReflectiveMockModel();
+        reflected.setIntField(3);
+        reflected.stringField = "three";
+        reflected.dateField = date;
+        reflected.modelField = reference;
+        reflected.lazyField = Lazy.of(reference);
+        reflected.save();
+
+        ActiveAndroid.clearCache();
+
+        AdapterMockModel loadedAdapted = Model.load(AdapterMockModel.class, adapted.getId());
+        ReflectiveMockModel loadedReflected = Model.load(ReflectiveMockModel.class, reflected.getId());
+
+        assertEquals(3, loadedAdapted.intField);
+        assertEquals(loadedReflected.getIntField(), loadedAdapted.intField);
+        assertEquals(loadedReflected.stringField, loadedAdapted.stringField);
+        assertEquals(loadedReflected.dateField, loadedAdapted.dateField);
+        assertEquals(reference.getId(), loadedAdapted.modelField.getId());
+        assertEquals(loadedReflected.modelField.getId(), loadedAdapted.modelField.getId());
+        assertEquals(loadedReflected.lazyField.getId(), loadedAdapted.lazyField.getId());
+    }
+
+    /**
+     * Models created while loading should get the caller's TableInfo rather than look it up.
+     */
+    public void testNewInstanceSharesTableInfo() {
+        TableInfo tableInfo = new TableInfo(AdapterMockModel.class);
+        Model created = tableInfo.newInstance(ActiveAndroid.getCache());
+
+        assertTrue(created instanceof AdapterMockModel);
+        assertSame(tableInfo, created.getTableInfo());
+
+        // Models created by the application still use the registered TableInfo.
+        assertSame(ActiveAndroid.getCache().getTableInfo(AdapterMockModel.class),
+                new AdapterMockModel().getTableInfo());
+    }
+
+    private static List<String> getColumns(String table) {
+        final List<String> columns = new ArrayList<String>();
+        final Cursor cursor = ActiveAndroid.getDatabase().rawQuery("PRAGMA table_info(" + table + ")", null);
+        try {
+            while (cursor.moveToNext()) {
+                columns.add(cursor.getString(cursor.getColumnIndex("name")) + " "
+                        + cursor.getString(cursor.getColumnIndex("type")));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        return columns;
+    }
+
+    /**
+     * Mock model persisted through its generated adapter.
+     */
+    @Table(name = "AdapterMockModel")
+    public static class AdapterMockModel extends Model {
+        @Column
+        public int intField;
+
+        @Column
+        public String stringField;
+
+        @Column
+        public Date dateField;
+
+        @Column
+        public MockModel modelField;
+
+        @Column
+        public Lazy<MockModel> lazyField;
+    }
+
+    /**
+     * The same columns as AdapterMockModel, the private one keeps the processor from
+     * generating an adapter.
+     */
+    @Table(name = "ReflectiveMockModel")
+    public static class ReflectiveMockModel extends Model {
+        @Column
+        private int intField;
+
+        @Column
+        public String stringField;
+
+        @Column
+        public Date dateField;
+
+        @Column
+        public MockModel modelField;
+
+        @Column
+        public Lazy<MockModel> lazyField;
+
+        public int getIntField() {
+            return intField;
+        }
+
+        public void setIntField(int intField) {
+            this.intField = intField;
+        }
+    }
+}
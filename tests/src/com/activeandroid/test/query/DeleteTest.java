@@ -17,6 +17,8 @@ package com.activeandroid.test.query;
  */
 
 import com.activeandroid.query.Delete;
+import com.activeandroid.query.From;
+import com.activeandroid.query.Select;
 import com.activeandroid.test.MockModel;
 
 public class DeleteTest extends SqlableTestCase {
@@ -28,4 +30,18 @@ public class DeleteTest extends SqlableTestCase {
 		assertSqlEquals("DELETE FROM MockModel",
 				new Delete().from(MockModel.class));
 	}
+
+	/**
+	 * Deleting a single row should remove only the first match, in query order.
+	 */
+	public void testDeleteSingle() {
+		saveMockModels(3);
+
+		From delete = new Delete().from(MockModel.class).where("intField > ?", 1).orderBy("intField DESC");
+		assertEquals(1, delete.executeDeleteSingle());
+		assertFalse(new Select().from(MockModel.class).where("intField = ?", 3).exists());
+		assertEquals(1, delete.executeDeleteSingle());
+		assertEquals(0, delete.executeDeleteSingle());
+		assertEquals(1, new Select().from(MockModel.class).count());
+	}
 }
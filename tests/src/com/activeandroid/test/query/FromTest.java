@@ -16,11 +16,26 @@ package com.activeandroid.test.query;
  * limitations under the License.
  */
 
+import com.activeandroid.ActiveAndroid;
+import com.activeandroid.Cache;
 import com.activeandroid.Model;
 import com.activeandroid.annotation.Table;
+import com.activeandroid.query.CloseableIterator;
+import com.activeandroid.query.CompiledQuery;
 import com.activeandroid.query.From;
+import com.activeandroid.query.ModelCallback;
+import com.activeandroid.query.Page;
+import com.activeandroid.query.QueryPlan;
 import com.activeandroid.query.Select;
 import com.activeandroid.test.MockModel;
+import com.activeandroid.util.SQLiteUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 
 public class FromTest extends SqlableTestCase {
 	private static final String SELECT_PREFIX = "SELECT ALL * FROM MockModel ";
@@ -223,6 +238,336 @@ public class FromTest extends SqlableTestCase {
 					.as("a"));
 	}
 	
+	public void testAfter() {
+		assertSqlEquals(SELECT_PREFIX + "ORDER BY intField DESC, MockModel._id DESC",
+				from().after(new String[] { "intField DESC" }, null));
+
+		From query = from().after(new String[] { "intField", "doubleField DESC" }, new Object[] { 1, 2.5, 3L });
+		assertArrayEquals(query.getArguments(), "1", "1", "2.5", "1", "2.5", "3");
+		assertSqlEquals(SELECT_PREFIX + "WHERE ((intField > ?) OR (intField = ? AND doubleField < ?) "
+				+ "OR (intField = ? AND doubleField = ? AND MockModel._id < ?)) "
+				+ "ORDER BY intField ASC, doubleField DESC, MockModel._id DESC",
+				query);
+	}
+
+	/**
+	 * Pages should seek past the last row, whatever the case of the order columns.
+	 */
+	public void testExecutePage() {
+		saveMockModels(5);
+
+		String[] orderColumns = new String[] { "INTFIELD DESC" };
+		Page<MockModel> page = new Select().from(MockModel.class).after(orderColumns, null).executePage(2);
+		assertEquals(2, page.getItems().size());
+		assertTrue(page.hasNext());
+		assertEquals(4, page.getItems().get(1).intField);
+
+		page = new Select().from(MockModel.class).after(orderColumns, page.getNextKey()).executePage(2);
+		assertEquals(3, page.getItems().get(0).intField);
+		assertEquals(2, page.getItems().get(1).intField);
+	}
+
+	/**
+	 * The keyset clause should apply to the whole where clause, including its ORs.
+	 */
+	public void testExecutePageOr() {
+		saveMockModels(5);
+
+		String[] orderColumns = new String[] { "intField" };
+		Page<MockModel> page = new Select().from(MockModel.class).where("intField = ?", 1).or("intField = ?", 5)
+				.after(orderColumns, null).executePage(1);
+		assertEquals(1, page.getItems().get(0).intField);
+
+		page = new Select().from(MockModel.class).where("intField = ?", 1).or("intField = ?", 5)
+				.after(orderColumns, page.getNextKey()).executePage(1);
+		assertEquals(1, page.getItems().size());
+		assertEquals(5, page.getItems().get(0).intField);
+		assertFalse(page.hasNext());
+	}
+
+	/**
+	 * Scalar queries should read a single value, and count the same way repeatedly.
+	 */
+	public void testScalar() {
+		saveMockModels(3);
+
+		assertEquals(3, new Select("MAX(intField)").from(MockModel.class).scalarLong());
+		assertEquals("1", new Select("MIN(intField)").from(MockModel.class).scalarString());
+		assertNull(new Select("intField").from(MockModel.class).where("intField > 3").scalarString());
+
+		for (int i = 0; i < 2; i++) {
+			assertEquals(2, new Select().from(MockModel.class).where("intField > ?", 1).count());
+			assertTrue(new Select().from(MockModel.class).where("intField = ?", 3).exists());
+		}
+	}
+
+	/**
+	 * Aggregates should be computed over the matching rows only.
+	 */
+	public void testAggregates() {
+		saveMockModels(4);
+
+		From from = new Select().from(MockModel.class).where("intField > ?", 1);
+		assertEquals(9.0, from.sum("intField"), 0);
+		assertEquals(9, from.sumLong("intField"));
+		assertEquals(3.0, from.avg("intField"), 0);
+		assertEquals(2.0, from.min("intField"), 0);
+		assertEquals(2, from.minLong("intField"));
+		assertEquals(4.0, from.max("intField"), 0);
+		assertEquals(4, from.maxLong("intField"));
+		assertEquals(0.0, new Select().from(MockModel.class).where("intField > 4").sum("intField"), 0);
+		assertEquals(0, new Select().from(MockModel.class).where("intField > 4").sumLong("intField"));
+
+		Map<String, Long> counts = new Select().from(MockModel.class).orderBy("booleanField").groupedCount("booleanField");
+		assertEquals(2, counts.size());
+		assertEquals(Long.valueOf(2), counts.get("0"));
+		assertEquals(Long.valueOf(2), counts.get("1"));
+	}
+
+	/**
+	 * Integer aggregates should stay exact beyond the precision of a double.
+	 */
+	public void testAggregatesLong() {
+		saveMockModels(2);
+		ActiveAndroid.getDatabase().execSQL("UPDATE MockModel SET intField = 9007199254740993 WHERE intField = 1");
+
+		From from = new Select().from(MockModel.class);
+		assertEquals(9007199254740995L, from.sumLong("intField"));
+		assertEquals(9007199254740993L, from.maxLong("intField"));
+	}
+
+	/**
+	 * Aggregates of grouped queries should fail instead of reading the first group.
+	 */
+	public void testAggregatesGrouped() {
+		saveMockModels(3);
+
+		try {
+			new Select().from(MockModel.class).groupBy("booleanField").sum("intField");
+			fail("Aggregates of grouped queries should be rejected.");
+		} catch (IllegalStateException e) {
+			// Expected.
+		}
+
+		try {
+			new Select().from(MockModel.class).groupBy("booleanField").maxLong("intField");
+			fail("Aggregates of grouped queries should be rejected.");
+		} catch (IllegalStateException e) {
+			// Expected.
+		}
+	}
+
+	/**
+	 * Numeric aggregates of text should fail instead of reading 0.
+	 */
+	public void testAggregatesText() {
+		if (!SQLiteUtils.CURSOR_TYPES_SUPPORTED) {
+			return;
+		}
+
+		saveMockModels(2);
+
+		try {
+			new Select().from(MockModel.class).min("'a' || intField");
+			fail("Text shouldn't be read as a number.");
+		} catch (IllegalArgumentException e) {
+			// Expected.
+		}
+	}
+
+	/**
+	 * The plan should report scans of unindexed columns but not lookups by id.
+	 */
+	public void testExplain() {
+		QueryPlan scan = new Select().from(MockModel.class).where("intField = ?", 1).explain();
+		assertTrue(scan.hasFullScan());
+
+		QueryPlan search = new Select().from(MockModel.class).where("_id = ?", 1).explain();
+		assertFalse(search.hasFullScan());
+	}
+
+	/**
+	 * A statement scanning a table should be reported once the table grows over the threshold.
+	 */
+	public void testScanGuardRechecksRowCounts() {
+		saveMockModels(1);
+		Cache cache = ActiveAndroid.getCache();
+		cache.setScanGuard(2, true, 0);
+		try {
+			From from = new Select().from(MockModel.class).where("intField = ?", 1);
+			from.execute();
+
+			for (int i = 0; i < 5; i++) {
+				new MockModel().save();
+			}
+
+			try {
+				from.execute();
+				fail("The scan should be reported.");
+			} catch (IllegalStateException e) {
+				// Expected.
+			}
+		}
+		finally {
+			cache.setScanGuard(Cache.SCAN_GUARD_DISABLED, false);
+		}
+	}
+
+	/**
+	 * Scans of aliased tables and compiled queries should be reported too.
+	 */
+	public void testScanGuardAliasAndCompiled() {
+		saveMockModels(3);
+		Cache cache = ActiveAndroid.getCache();
+		cache.setScanGuard(0, true);
+		try {
+			try {
+				new Select().from(MockModel.class).as("m").where("m.intField = ?", 1).execute();
+				fail("The scan of the alias should be reported.");
+			} catch (IllegalStateException e) {
+				// Expected.
+			}
+
+			CompiledQuery<MockModel> query = new Select().from(MockModel.class).where("intField = ?", 0).compile();
+			try {
+				query.count(1);
+				fail("The scan of the compiled count should be reported.");
+			} catch (IllegalStateException e) {
+				// Expected.
+			}
+			query.close();
+		}
+		finally {
+			cache.setScanGuard(Cache.SCAN_GUARD_DISABLED, false);
+		}
+	}
+
+	/**
+	 * Plucking a column should read its values without loading models.
+	 */
+	public void testPluck() {
+		saveMockModels(3);
+
+		From from = new Select().from(MockModel.class).orderBy("intField");
+		assertTrue(Arrays.equals(new int[] { 1, 2, 3 }, from.pluckInts("intField")));
+		assertTrue(Arrays.equals(new double[] { 0.5, 1, 1.5 }, from.pluckDoubles("doubleField")));
+		assertTrue(Arrays.equals(new String[] { "1", "2", "3" }, from.pluckStrings("intField")));
+		assertEquals(3, from.pluckLongs("_id").length);
+	}
+
+	/**
+	 * Iterating should load every row, reusing the instance when asked to.
+	 */
+	public void testIterate() {
+		saveMockModels(3);
+		ActiveAndroid.clearCache();
+
+		CloseableIterator<MockModel> iterator = new Select().from(MockModel.class).iterate(true);
+		MockModel first = iterator.next();
+		int count = 1;
+		while (iterator.hasNext()) {
+			assertSame(first, iterator.next());
+			count++;
+		}
+		assertEquals(3, count);
+
+		final List<MockModel> models = new ArrayList<MockModel>();
+		new Select().from(MockModel.class).forEach(new ModelCallback<MockModel>() {
+			@Override
+			public void onModel(MockModel model) {
+				models.add(model);
+			}
+		});
+		assertEquals(3, new HashSet<MockModel>(models).size());
+	}
+
+	/**
+	 * A reused instance should not keep the values of the previous row for NULL columns.
+	 */
+	public void testIterateNullColumns() {
+		saveMockModels(4);
+		ActiveAndroid.getDatabase().execSQL("UPDATE MockModel SET dateField = 1000 WHERE intField % 2 = 1");
+		ActiveAndroid.getDatabase().execSQL("UPDATE MockModel SET doubleField = NULL WHERE intField % 2 = 0");
+		ActiveAndroid.clearCache();
+
+		CloseableIterator<MockModel> iterator = new Select().from(MockModel.class).orderBy("intField").iterate(true);
+		try {
+			while (iterator.hasNext()) {
+				MockModel model = iterator.next();
+				if (model.intField % 2 == 1) {
+					assertEquals(new Date(1000), model.dateField);
+					assertEquals(model.intField / 2.0, model.doubleField, 0);
+				}
+				else {
+					assertNull(model.dateField);
+					assertEquals(0.0, model.doubleField, 0);
+				}
+			}
+		}
+		finally {
+			iterator.close();
+		}
+	}
+
+	/**
+	 * A compiled query should run with new arguments each time.
+	 */
+	public void testCompiledQuery() {
+		saveMockModels(3);
+
+		CompiledQuery<MockModel> query = new Select().from(MockModel.class).where("intField >= ?", 0).compile();
+		assertEquals(3, query.execute().size());
+		assertEquals(1, query.execute(3).size());
+		assertEquals(2, query.count(2));
+		assertFalse(query.exists(4));
+		assertEquals(3, query.executeSingle(3).intField);
+		query.close();
+	}
+
+	/**
+	 * Every method of a compiled query should convert and bind arguments the same way.
+	 */
+	public void testCompiledQueryArguments() {
+		saveMockModels(3);
+
+		CompiledQuery<MockModel> query = new Select().from(MockModel.class).where("booleanField = ?", false).compile();
+		assertEquals(2, query.execute().size());
+		assertEquals(2, query.count());
+		assertEquals(1, query.execute(true).size());
+		assertEquals(1, query.count(true));
+		assertTrue(query.exists(true));
+		assertEquals(2, query.executeSingle(true).intField);
+		query.close();
+	}
+
+	/**
+	 * Counting a grouped query matching no rows should return 0.
+	 */
+	public void testCompiledQueryGroupedCount() {
+		saveMockModels(3);
+
+		CompiledQuery<MockModel> query = new Select().from(MockModel.class)
+				.where("intField > ?", 0).groupBy("booleanField").compile();
+		assertEquals(0, query.count(3));
+		query.close();
+	}
+
+	/**
+	 * A compiled query should keep working after the database is closed and reopened.
+	 */
+	public void testCompiledQueryAfterClose() {
+		saveMockModels(3);
+
+		CompiledQuery<MockModel> query = new Select().from(MockModel.class).where("intField >= ?", 0).compile();
+		assertEquals(3, query.count());
+		assertTrue(query.exists(3));
+
+		ActiveAndroid.getCache().closeDatabase();
+
+		assertEquals(2, query.count(2));
+		assertFalse(query.exists(4));
+	}
+
 	private From from() {
 		return new Select().all().from(MockModel.class);
 	}
@@ -0,0 +1,93 @@
+package com.activeandroid.test.query;
+
+/*
+ * Copyright (C) 2010 Michael Pardo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.activeandroid.AsyncCallback;
+import com.activeandroid.query.QueryObserver;
+import com.activeandroid.query.Select;
+import com.activeandroid.test.MockModel;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class QueryObserverTest extends SqlableTestCase {
+	private static final long DEBOUNCE_MILLIS = 200;
+	private static final long TIMEOUT_MILLIS = 2000;
+
+	/**
+	 * A burst of changes should be delivered as a single result.
+	 */
+	public void testBurstDeliveredOnce() throws Exception {
+		saveMockModels(1);
+
+		final BlockingQueue<List<MockModel>> results = new LinkedBlockingQueue<List<MockModel>>();
+		QueryObserver<MockModel> observer = new Select().from(MockModel.class)
+				.observe(new QueueCallback(results), DEBOUNCE_MILLIS);
+
+		try {
+			assertEquals(1, results.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS).size());
+
+			for (int i = 0; i < 5; i++) {
+				new MockModel().save();
+			}
+
+			assertEquals(6, results.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS).size());
+			assertNull(results.poll(DEBOUNCE_MILLIS * 3, TimeUnit.MILLISECONDS));
+		}
+		finally {
+			observer.stop();
+		}
+	}
+
+	/**
+	 * Nothing should be delivered once the observer is stopped.
+	 */
+	public void testNothingDeliveredAfterStop() throws Exception {
+		saveMockModels(1);
+
+		final BlockingQueue<List<MockModel>> results = new LinkedBlockingQueue<List<MockModel>>();
+		QueryObserver<MockModel> observer = new Select().from(MockModel.class)
+				.observe(new QueueCallback(results), DEBOUNCE_MILLIS);
+
+		assertNotNull(results.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+		new MockModel().save();
+		observer.stop();
+
+		assertNull(results.poll(DEBOUNCE_MILLIS * 3, TimeUnit.MILLISECONDS));
+	}
+
+	private static final class QueueCallback implements AsyncCallback<List<MockModel>> {
+		private final BlockingQueue<List<MockModel>> mResults;
+
+		QueueCallback(BlockingQueue<List<MockModel>> results) {
+			mResults = results;
+		}
+
+		@Override
+		public void onResult(List<MockModel> result) {
+			mResults.add(result);
+		}
+
+		@Override
+		public void onError(Throwable error) {
+			throw new RuntimeException(error);
+		}
+	}
+}
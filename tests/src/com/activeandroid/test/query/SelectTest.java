@@ -16,9 +16,16 @@ package com.activeandroid.test.query;
  * limitations under the License.
  */
 
+import com.activeandroid.ActiveAndroid;
+import com.activeandroid.Model;
+import com.activeandroid.QueryListener;
 import com.activeandroid.query.Select;
 import com.activeandroid.test.MockModel;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 public class SelectTest extends SqlableTestCase {
 	public void testSelectEmpty() {
 		assertSqlEquals("SELECT * ", new Select());
@@ -47,4 +54,73 @@ public class SelectTest extends SqlableTestCase {
 		assertSqlEquals("SELECT ALL * FROM MockModel",
 				new Select().all().from(MockModel.class));
 	}
+
+	/**
+	 * Query listeners should see saves, queries and deletes with their row counts.
+	 */
+	public void testQueryListener() {
+		Model.truncate(MockModel.class);
+
+		final List<String> statements = new ArrayList<String>();
+		final List<Integer> rowCounts = new ArrayList<Integer>();
+		QueryListener listener = new QueryListener() {
+			@Override
+			public void onQuery(String sql, Object[] bindArgs, long durationNanos, int rowCount, Thread thread) {
+				assertSame(Thread.currentThread(), thread);
+				assertTrue(durationNanos >= 0);
+				statements.add(sql);
+				rowCounts.add(rowCount);
+			}
+		};
+
+		ActiveAndroid.getCache().addQueryListener(listener);
+		try {
+			MockModel model = new MockModel();
+			model.save();
+			new Select().from(MockModel.class).execute();
+			model.delete();
+		}
+		finally {
+			ActiveAndroid.getCache().removeQueryListener(listener);
+		}
+
+		assertEquals(3, statements.size());
+		assertTrue(statements.get(0).startsWith("INSERT INTO MockModel"));
+		assertTrue(statements.get(1).startsWith("SELECT"));
+		assertTrue(statements.get(2).startsWith("DELETE FROM MockModel"));
+		assertEquals(Arrays.asList(1, 1, 1), rowCounts);
+	}
+
+	/**
+	 * Batched saves should report the values bound to their compiled statements.
+	 */
+	public void testQueryListenerSaveAllBindArgs() {
+		Model.truncate(MockModel.class);
+
+		final List<Object[]> bindArgs = new ArrayList<Object[]>();
+		QueryListener listener = new QueryListener() {
+			@Override
+			public void onQuery(String sql, Object[] args, long durationNanos, int rowCount, Thread thread) {
+				bindArgs.add(args);
+			}
+		};
+
+		MockModel model = new MockModel();
+		model.intField = 42;
+
+		ActiveAndroid.getCache().addQueryListener(listener);
+		try {
+			Model.saveAll(Arrays.asList(model));
+			model.intField = 43;
+			Model.saveAll(Arrays.asList(model));
+		}
+		finally {
+			ActiveAndroid.getCache().removeQueryListener(listener);
+		}
+
+		assertEquals(2, bindArgs.size());
+		assertTrue(Arrays.asList(bindArgs.get(0)).contains(42));
+		assertTrue(Arrays.asList(bindArgs.get(1)).contains(43));
+		assertEquals(model.getId(), bindArgs.get(1)[bindArgs.get(1).length - 1]);
+	}
 }
@@ -16,8 +16,10 @@ package com.activeandroid.test.query;
  * limitations under the License.
  */
 
+import com.activeandroid.Model;
 import com.activeandroid.query.Sqlable;
 import com.activeandroid.test.ActiveAndroidTestCase;
+import com.activeandroid.test.MockModel;
 
 public abstract class SqlableTestCase extends ActiveAndroidTestCase {
 	public static void assertSqlEquals(String expected, Sqlable actual) {
@@ -27,4 +29,19 @@ public abstract class SqlableTestCase extends ActiveAndroidTestCase {
 	public static void assertSqlEquals(Sqlable expected, Sqlable actual) {
 	    assertEquals(expected.toSql(), actual.toSql());
 	}
+
+	/**
+	 * Replaces the MockModel rows with <code>count</code> models numbered from 1, with
+	 * intField = i, doubleField = i / 2 and booleanField set on even rows.
+	 */
+	public static void saveMockModels(int count) {
+		Model.truncate(MockModel.class);
+		for (int i = 1; i <= count; i++) {
+			MockModel model = new MockModel();
+			model.intField = i;
+			model.doubleField = i / 2.0;
+			model.booleanField = i % 2 == 0;
+			model.save();
+		}
+	}
 }
@@ -16,9 +16,13 @@ package com.activeandroid.test.query;
  * limitations under the License.
  */
 
+import com.activeandroid.ActiveAndroid;
+import com.activeandroid.query.CompiledUpdate;
+import com.activeandroid.query.Select;
 import com.activeandroid.query.Set;
 import com.activeandroid.query.Update;
 import com.activeandroid.test.MockModel;
+import com.activeandroid.util.SQLiteUtils;
 
 public class UpdateTest extends SqlableTestCase {
 	private static final String UPDATE_PREFIX = "UPDATE MockModel ";
@@ -56,6 +60,65 @@ public class UpdateTest extends SqlableTestCase {
 				set);
 	}
 	
+	/**
+	 * Updates should report the rows they changed, compiled or not.
+	 */
+	public void testUpdateCount() {
+		saveMockModels(3);
+
+		assertEquals(2, new Update(MockModel.class).set("doubleField = ?", 1.5).where("intField > ?", 1).execute());
+		assertEquals(0, new Update(MockModel.class).set("doubleField = ?", 1.5).where("intField > ?", 3).execute());
+
+		CompiledUpdate update = new Update(MockModel.class).set("doubleField = ?", 0).where("intField = ?", 0).compile();
+		assertEquals(1, update.execute(2.5, 1));
+		assertEquals(0, update.execute(2.5, 4));
+		update.close();
+
+		assertEquals(2.5, new Select().from(MockModel.class).where("intField = ?", 1).sum("doubleField"), 0);
+	}
+
+	/**
+	 * A compiled update should keep working after the database is closed and reopened.
+	 */
+	public void testCompiledUpdateAfterClose() {
+		saveMockModels(3);
+
+		CompiledUpdate update = new Update(MockModel.class).set("doubleField = ?", 0).where("intField = ?", 0).compile();
+		assertEquals(1, update.execute(2.5, 1));
+
+		ActiveAndroid.getCache().closeDatabase();
+
+		assertEquals(1, update.execute(3.5, 2));
+		assertEquals(3.5, new Select().from(MockModel.class).where("intField = ?", 2).sum("doubleField"), 0);
+	}
+
+	/**
+	 * Booleans and models should be stored as integers, compiled or not, as in the
+	 * CompiledUpdate example.
+	 */
+	public void testUpdateArguments() {
+		saveMockModels(3);
+
+		assertEquals(1, new Update(MockModel.class).set("booleanField = ?", true).where("intField = ?", 1).execute());
+		assertEquals(2, countIntegerBooleans(1));
+
+		CompiledUpdate update = new Update(MockModel.class).set("booleanField = ?", true).where("intField = ?", 3).compile();
+		assertEquals(1, update.execute());
+		assertEquals(3, countIntegerBooleans(1));
+		assertEquals(1, update.execute(false, 1));
+		assertEquals(1, countIntegerBooleans(0));
+		update.close();
+
+		MockModel model = new Select().from(MockModel.class).where("intField = ?", 2).executeSingle();
+		assertEquals(1, new Update(MockModel.class).set("intField = ?", 5).where("_id = ?", model).execute());
+		assertEquals(5, new Select().from(MockModel.class).where("_id = ?", model).<MockModel>executeSingle().intField);
+	}
+
+	private static long countIntegerBooleans(int value) {
+		return SQLiteUtils.longQuery(ActiveAndroid.getCache(),
+				"SELECT COUNT(*) FROM MockModel WHERE typeof(booleanField) = 'integer' AND booleanField = " + value, null);
+	}
+
 	private Update update() {
 		return new Update(MockModel.class);
 	}